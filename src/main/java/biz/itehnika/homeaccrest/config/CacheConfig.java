@@ -0,0 +1,72 @@
+package biz.itehnika.homeaccrest.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Hibernate second-level and query cache in Caffeine, every region is sized here:
+// cache.<region>.max-size and cache.<region>.expire-after-write
+@Configuration
+public class CacheConfig {
+
+    public static final String ACCOUNT_REGION = "account";
+    public static final String ACCOUNT_QUERY_REGION = "account-queries";
+    public static final String PAYMENT_CATEGORY_REGION = "payment-category";
+    public static final String PAYMENT_CATEGORY_QUERY_REGION = "payment-category-queries";
+    public static final String CURRENCY_REGION = "currency";
+    public static final String CURRENCY_QUERY_REGION = "currency-queries";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment environment){
+        // Own manager per context: the provider's default manager is JVM-wide and a second context could not create its regions
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(URI.create("homeacc-" + UUID.randomUUID()), getClass().getClassLoader());
+        createRegion(cacheManager, environment, ACCOUNT_REGION, 10_000, Duration.ofHours(1));
+        createRegion(cacheManager, environment, ACCOUNT_QUERY_REGION, 10_000, Duration.ofMinutes(10));
+        createRegion(cacheManager, environment, PAYMENT_CATEGORY_REGION, 10_000, Duration.ofHours(1));
+        createRegion(cacheManager, environment, PAYMENT_CATEGORY_QUERY_REGION, 10_000, Duration.ofMinutes(10));
+        createRegion(cacheManager, environment, CURRENCY_REGION, 5_000, Duration.ofDays(1));     // rows are never changed
+        createRegion(cacheManager, environment, CURRENCY_QUERY_REGION, 5_000, Duration.ofHours(1));
+        createRegion(cacheManager, environment, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, 1_000, Duration.ofMinutes(10));
+        // Last change time per table, must not be evicted before the query results that depend on it
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                                 new CaffeineConfiguration<>().setStoreByValue(false).setStatisticsEnabled(true));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cachePropertiesCustomizer(CacheManager hibernateCacheManager){
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");     // every region must be created above
+            properties.putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.putIfAbsent(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, Environment environment, String region, long maxSize, Duration expireAfterWrite){
+        long size = environment.getProperty("cache." + region + ".max-size", Long.class, maxSize);
+        Duration expiry = environment.getProperty("cache." + region + ".expire-after-write", Duration.class, expireAfterWrite);
+        cacheManager.createCache(region, new CaffeineConfiguration<>()
+            .setMaximumSize(OptionalLong.of(size))
+            .setExpireAfterWrite(OptionalLong.of(expiry.toNanos()))
+            .setStoreByValue(false)
+            .setStatisticsEnabled(true));
+    }
+}
@@ -0,0 +1,29 @@
+package biz.itehnika.homeaccrest.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DatabaseConfig {
+
+    // Databases created by Hibernate before migrations existed already have the V1 schema
+    @Bean
+    public FlywayConfigurationCustomizer flywayConfigurationCustomizer(){
+        return configuration -> configuration.baselineOnMigrate(true).baselineVersion("1");
+    }
+
+    // JDBC batching for bulk writes (payments import), payment ids are pooled by the sequence
+    @Bean
+    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(@Value("${payments.import.batch-size:50}") int batchSize){
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+
+}
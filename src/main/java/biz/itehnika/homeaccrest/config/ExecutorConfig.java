@@ -0,0 +1,21 @@
+package biz.itehnika.homeaccrest.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+
+    public static final String RATES_BACKFILL_EXECUTOR = "ratesBackfillExecutor";
+
+    // Rate provider calls of every backfill run, the scheduled ones and the single-date one included
+    @Bean(name = RATES_BACKFILL_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService ratesBackfillExecutor(@Value("${currency.rates.backfill-threads:4}") int threads){
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("rates-backfill-"));
+    }
+}
@@ -1,9 +1,13 @@
 package biz.itehnika.homeaccrest.config;
 
 
+import biz.itehnika.homeaccrest.repos.CustomerRepository;
 import biz.itehnika.homeaccrest.services.InvalidTokenService;
+import biz.itehnika.homeaccrest.utils.CustomerPrincipal;
 import biz.itehnika.homeaccrest.utils.JwtTokenUtils;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,32 +30,37 @@ import java.util.stream.Collectors;
 public class JwtRequestFilter extends OncePerRequestFilter {
     private final JwtTokenUtils jwtTokenUtils;
     private final InvalidTokenService invalidTokenService;
+    private final CustomerRepository customerRepository;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String username = null;
-        String jwt = null;
+        Claims claims = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwt = authHeader.substring(7);
+            String jwt = authHeader.substring(7);
             try {
                 if (invalidTokenService.existsByToken(jwt)){
                     throw new LoginException();
                 }
-                username = jwtTokenUtils.getUsername(jwt);
+                claims = jwtTokenUtils.getClaims(jwt);
             } catch (ExpiredJwtException e) {
                 log.debug("Время жизни токена вышло");
             } catch (LoginException e) {
                 log.debug("Пользователь не авторизован");
-            } catch (SecurityException e) {
+            } catch (JwtException e) {
                 log.debug("Подпись неправильная");
             }
         }
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String username = claims.getSubject();
+            Long customerId = jwtTokenUtils.getCustomerId(claims);
+            if (customerId == null) {
+                customerId = customerRepository.findIdByEmail(username);
+            }
             UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
-                    username,
+                    new CustomerPrincipal(customerId, username),
                     null,
-                    jwtTokenUtils.getRoles(jwt).stream().map((role) -> new SimpleGrantedAuthority(role.toString())).collect(Collectors.toList())
+                    jwtTokenUtils.getRoles(claims).stream().map((role) -> new SimpleGrantedAuthority(role.toString())).collect(Collectors.toList())
             );
             SecurityContextHolder.getContext().setAuthentication(token);
         }
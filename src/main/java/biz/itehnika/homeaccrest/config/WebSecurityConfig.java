@@ -45,6 +45,7 @@ public class WebSecurityConfig {
 //            .cors(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests((request) -> request
                 .requestMatchers("/admin").hasRole("ADMIN")
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .anyRequest().permitAll()
             )
             .sessionManagement((session) -> session
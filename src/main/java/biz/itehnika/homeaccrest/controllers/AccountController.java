@@ -2,14 +2,17 @@ package biz.itehnika.homeaccrest.controllers;
 
 import biz.itehnika.homeaccrest.dto.AccountCreateUpdateDTO;
 import biz.itehnika.homeaccrest.dto.AccountDTO;
+import biz.itehnika.homeaccrest.dto.BalancePointDTO;
 import biz.itehnika.homeaccrest.exceptions.AppError;
 import biz.itehnika.homeaccrest.models.Account;
-import biz.itehnika.homeaccrest.models.Customer;
 import biz.itehnika.homeaccrest.models.enums.AccountType;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
 import biz.itehnika.homeaccrest.services.AccountService;
-import biz.itehnika.homeaccrest.services.CustomerService;
+import biz.itehnika.homeaccrest.services.BalanceCheckpointService;
+import biz.itehnika.homeaccrest.services.PaymentService;
+import biz.itehnika.homeaccrest.utils.CustomerPrincipal;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -20,11 +23,20 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.security.Principal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,7 +49,15 @@ import java.util.List;
 public class AccountController {
 
     public final AccountService accountService;
-    public final CustomerService customerService;
+    public final PaymentService paymentService;
+    public final BalanceCheckpointService balanceCheckpointService;
+    public final ObjectMapper objectMapper;
+    
+    // Bounds of the history when the period is not given, earlier payments still go into the opening balance
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 23, 59);
+    
+    final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
     
     @Operation(
         summary = "Get a list of all accounts for the current customer",
@@ -57,10 +77,9 @@ public class AccountController {
     )
     @GetMapping("/accounts")
     @PreAuthorize("hasAnyRole('ROLE_USER')")
-    public List<AccountDTO> accountsList(Principal principal){
-        Customer customer = customerService.findByEmail(principal.getName());
+    public List<AccountDTO> accountsList(@AuthenticationPrincipal CustomerPrincipal principal){
         List<AccountDTO> accountDTOList = new ArrayList<>();
-        for (Account account : accountService.getAccountsByCustomer(customer)){
+        for (Account account : accountService.getAccountsByCustomerId(principal.getId())){
             accountDTOList.add(AccountDTO.of(account));
         }
         return accountDTOList;
@@ -83,14 +102,13 @@ public class AccountController {
     @PostMapping(value = "/accounts")
     @PreAuthorize("hasAnyRole('ROLE_USER')")
     public ResponseEntity<?> newAccount(@Parameter(schema = @Schema(example = "{\"name\":\"To travel\",\"description\":\"Simply Cash\",\"type\":\"CASH\",\"currencyName\":\"UAH\",\"balance\":\"0.00\"}]"))
-                                           @RequestBody AccountCreateUpdateDTO accountCreateUpdateDTO, Principal principal) {
+                                           @RequestBody AccountCreateUpdateDTO accountCreateUpdateDTO,
+                                           @AuthenticationPrincipal CustomerPrincipal principal) {
 
-        Customer customer = customerService.findByEmail(principal.getName());
-        
-        if (accountService.getAccountByNameAndCustomer(accountCreateUpdateDTO.getName(), customer) != null) {
+        if (accountService.getAccountByNameAndCustomerId(accountCreateUpdateDTO.getName(), principal.getId()) != null) {
             return new ResponseEntity<>(new AppError("Account with specified name for this customer already exists"), HttpStatus.BAD_REQUEST);
         }
-        accountService.addAccount(accountCreateUpdateDTO, customer);
+        accountService.addAccount(accountCreateUpdateDTO, principal.getId());
         return ResponseEntity.ok().build();
     }
     
@@ -110,10 +128,10 @@ public class AccountController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
     public ResponseEntity<HttpStatus> deleteAccounts(@Parameter(schema = @Schema(example = "[12, 133, 13457]"))
-                                                     @RequestBody List<Long> toDeleteList, Principal principal) {
-        Customer customer = customerService.findByEmail(principal.getName());
+                                                     @RequestBody List<Long> toDeleteList,
+                                                     @AuthenticationPrincipal CustomerPrincipal principal) {
         if (toDeleteList != null && !toDeleteList.isEmpty()) {
-            accountService.deleteAccounts(toDeleteList, customer);
+            accountService.deleteAccounts(toDeleteList, principal.getId());
         }
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -136,16 +154,16 @@ public class AccountController {
     @PutMapping(value = "/accounts/{id}")
     @PreAuthorize("hasRole('ROLE_USER')")
     public ResponseEntity<?> updateAccount (@PathVariable(value = "id") Long id,
-                                            @RequestBody AccountCreateUpdateDTO accountCreateUpdateDTO, Principal principal) {
-        Customer customer = customerService.findByEmail(principal.getName());
+                                            @RequestBody AccountCreateUpdateDTO accountCreateUpdateDTO,
+                                            @AuthenticationPrincipal CustomerPrincipal principal) {
         if(!accountService.existsById(id)){
             return new ResponseEntity<>(new AppError("Account with specified ID not exists"), HttpStatus.BAD_REQUEST);
         }else {
-            if (!accountService.getById(id).getCustomer().getId().equals(customer.getId())){
+            if (!accountService.existsByIdAndCustomerId(id, principal.getId())){
                 return new ResponseEntity<>(new AppError("Account ID is wrong for this customer"), HttpStatus.BAD_REQUEST);
             }
         }
-        if (accountService.getAccountByNameAndCustomer(accountCreateUpdateDTO.getName(), customer) != null) {
+        if (accountService.getAccountByNameAndCustomerId(accountCreateUpdateDTO.getName(), principal.getId()) != null) {
             return new ResponseEntity<>(new AppError("Account with specified name already exists"), HttpStatus.BAD_REQUEST);
         }
         accountService.updateAccount(id, accountCreateUpdateDTO);
@@ -153,6 +171,165 @@ public class AccountController {
     }
     
     
+    @Operation(
+        summary = "Recalculate balances of all accounts of the current customer from their payments",
+        description = "Repair operation, balances are kept up to date by payment operations. Changes stored balances, so it is a POST"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = { @Content(mediaType = "application/json") }),
+        @ApiResponse(responseCode = "401", description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @PostMapping(value = "/accounts/repair")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public ResponseEntity<Void> repairAccountBalances(@AuthenticationPrincipal CustomerPrincipal principal) {
+        accountService.updateAccountBalancesInDB(principal.getId());
+        return ResponseEntity.ok().build();
+    }
+    
+    
+    @Operation(
+        summary = "Stream the balance history of an account of the current customer",
+        description = "NDJSON, one {dateTime, balance} object per line: the opening balance at the start of 'from', " +
+                      "then the balance after every payment of the period. Without 'from' the whole history is streamed"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                schema = @Schema(
+                    example = "{\"dateTime\":\"01-07-2024 00:00\",\"balance\":1500.0}\n" +
+                              "{\"dateTime\":\"03-07-2024 12:15\",\"balance\":1401.0}\n" +
+                              "{\"dateTime\":\"05-07-2024 09:00\",\"balance\":3401.0}\n"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) }),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping(value = "/accounts/{id}/balance-history")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<StreamingResponseBody> balanceHistory(@PathVariable(value = "id") Long id,
+                                                                @Parameter(description = "First day as dd-MM-yyyy") @RequestParam(required = false) String from,
+                                                                @Parameter(description = "Last day as dd-MM-yyyy") @RequestParam(required = false) String to,
+                                                                @AuthenticationPrincipal CustomerPrincipal principal){
+        if(!accountService.existsById(id)){
+            return badRequest("Account with specified ID not exists");
+        }else {
+            if (!accountService.existsByIdAndCustomerId(id, principal.getId())){
+                return badRequest("Account ID is wrong for this customer");
+            }
+        }
+        LocalDateTime startDate;
+        LocalDateTime endDate;
+        try {
+            startDate = from == null ? HISTORY_START : LocalDate.parse(from, dateFormatter).atStartOfDay();
+            endDate = to == null ? HISTORY_END : LocalDateTime.of(LocalDate.parse(to, dateFormatter), LocalTime.MAX);
+        } catch (DateTimeParseException e) {
+            return badRequest("Dates must be in format dd-MM-yyyy");
+        }
+        StreamingResponseBody body = outputStream -> {
+            paymentService.streamBalanceHistory(id, startDate, endDate, balancePointDTO -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(balancePointDTO));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    // A streaming handler can't return AppError as an object
+    private ResponseEntity<StreamingResponseBody> badRequest(String message){
+        byte[] error;
+        try {
+            error = objectMapper.writeValueAsBytes(new AppError(message));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(outputStream -> outputStream.write(error));
+    }
+
+
+    @Operation(
+        summary = "Get the balance of an account of the current customer at the end of a day",
+        description = "Starts from the nearest month-start checkpoint and adds only the payments after it. Without 'date' - today"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = "application/json",
+                schema = @Schema(example = "{\"dateTime\":\"15-07-2024 23:59\",\"balance\":3401.0}"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) }),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping(value = "/accounts/{id}/balance")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<?> balanceAsOf(@PathVariable(value = "id") Long id,
+                                         @Parameter(description = "Day as dd-MM-yyyy") @RequestParam(required = false) String date,
+                                         @AuthenticationPrincipal CustomerPrincipal principal){
+        if(!accountService.existsById(id)){
+            return new ResponseEntity<>(new AppError("Account with specified ID not exists"), HttpStatus.BAD_REQUEST);
+        }else {
+            if (!accountService.existsByIdAndCustomerId(id, principal.getId())){
+                return new ResponseEntity<>(new AppError("Account ID is wrong for this customer"), HttpStatus.BAD_REQUEST);
+            }
+        }
+        LocalDate day;
+        try {
+            day = date == null ? LocalDate.now() : LocalDate.parse(date, dateFormatter);
+        } catch (DateTimeParseException e) {
+            return new ResponseEntity<>(new AppError("Date must be in format dd-MM-yyyy"), HttpStatus.BAD_REQUEST);
+        }
+        Double balance = balanceCheckpointService.getBalanceBefore(id, day.plusDays(1).atStartOfDay());
+        return ResponseEntity.ok(BalancePointDTO.of(LocalDateTime.of(day, LocalTime.MAX), balance));
+    }
+
+    
+    @Operation(
+        summary = "Get the net worth of the current customer in the base currency",
+        description = "Account balances summed per currency and converted with today's (or the latest known) exchange rates"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = "application/json",
+                schema = @Schema(
+                    example = "{\"baseCurrencyName\":\"UAH\",\"total\":26310.0,\"currencies\":[" +
+                              "{\"currencyName\":\"UAH\",\"balance\":8154.05,\"rate\":1.0,\"baseBalance\":8154.05}," +
+                              "{\"currencyName\":\"EUR\",\"balance\":456.27,\"rate\":39.8,\"baseBalance\":18159.55}]}"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) }),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping("/accounts/net-worth")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<?> netWorth(@Parameter(description = "Base currency") @RequestParam(defaultValue = "UAH") CurrencyName base,
+                                      @AuthenticationPrincipal CustomerPrincipal principal){
+        try {
+            return new ResponseEntity<>(accountService.getNetWorth(principal.getId(), base), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new AppError(e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    
     @Operation(
         summary = "Get a list of account types names",
         description = ""
@@ -32,6 +32,7 @@ import javax.security.auth.login.LoginException;
 import java.security.Principal;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 
 @Tag(name = "Security & Authentication")
@@ -81,7 +82,7 @@ public class AuthController {
         
         UserDetails userDetails = userDetailsService.loadUserByUsername(authRequest.getEmail());
         Customer customer = customerService.findByEmail(authRequest.getEmail());
-        String token = jwtTokenUtils.generateToken(userDetails);
+        String token = jwtTokenUtils.generateToken(userDetails, customer.getId());
         CustomerDTO user = new CustomerDTO(customer.getId(), customer.getEmail(), customer.getFirstName(), customer.getLastName());
         return ResponseEntity.ok(new JwtResponseDTO(user, token));
     }
@@ -129,13 +130,15 @@ public class AuthController {
         
         String authHeader = request.getHeader("Authorization");
         String token = null;
+        LocalDateTime validDateTime = LocalDateTime.now().plus(duration);
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             token = authHeader.substring(7);
             try {
                 if (invalidTokenService.existsByToken(token)){
                     throw new LoginException();
                 }
-                jwtTokenUtils.getUsername(token);
+                // The token stays revoked until it expires by itself
+                validDateTime = LocalDateTime.ofInstant(jwtTokenUtils.getClaims(token).getExpiration().toInstant(), ZoneId.systemDefault());
             } catch (ExpiredJwtException e) {
                 log.debug("Время жизни токена вышло");
             } catch (LoginException e) {
@@ -143,8 +146,8 @@ public class AuthController {
             } catch (SecurityException e) {
                 log.debug("Подпись неправильная");
             }
+            invalidTokenService.addToBlackList(new InvalidTokenDTO(token, validDateTime));
         }
-        invalidTokenService.addToBlackList(new InvalidTokenDTO(token, LocalDateTime.now().plusMinutes(duration.toMinutesPart())));
   
         return ResponseEntity.ok().build();
     }
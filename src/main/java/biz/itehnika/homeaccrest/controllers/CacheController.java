@@ -0,0 +1,65 @@
+package biz.itehnika.homeaccrest.controllers;
+
+import biz.itehnika.homeaccrest.dto.CacheRegionStatisticDTO;
+import biz.itehnika.homeaccrest.services.CacheStatisticService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Tag(name = "Cache statistics", description = "Entity and query cache hit rates for ADMIN role")
+@RestController
+@CrossOrigin
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CacheStatisticService cacheStatisticService;
+    
+    @Operation(
+        summary = "Get hit statistics of the entity and query cache regions",
+        description = "Counted since the start of the application or the last reset"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(mediaType = "application/json",
+                schema = @Schema(
+                    example = "[{\"region\":\"account\",\"hitCount\":1840,\"missCount\":65,\"putCount\":70,\"hitRate\":0.9659}," +
+                              "{\"region\":\"account-queries\",\"hitCount\":512,\"missCount\":301,\"putCount\":301,\"hitRate\":0.6298}]"))),
+        @ApiResponse(responseCode = "401", description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping("/cache/statistics")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public List<CacheRegionStatisticDTO> cacheStatistics(){
+        return cacheStatisticService.getStatistics();
+    }
+    
+    
+    @Operation(
+        summary = "Reset the cache statistics",
+        description = "Cached data is kept"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = { @Content(mediaType = "application/json") }),
+        @ApiResponse(responseCode = "401", description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @DeleteMapping("/cache/statistics")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<HttpStatus> resetCacheStatistics(){
+        cacheStatisticService.resetStatistics();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,66 @@
+package biz.itehnika.homeaccrest.controllers;
+
+import biz.itehnika.homeaccrest.dto.CurrencyMatrixDTO;
+import biz.itehnika.homeaccrest.exceptions.AppError;
+import biz.itehnika.homeaccrest.services.CurrencyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+@Tag(name = "Currency rates", description = "Read-only exchange rates for customer in context with USERs role")
+@RestController
+@CrossOrigin
+@RequiredArgsConstructor
+public class CurrencyController {
+
+    private final CurrencyService currencyService;
+    
+    final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    
+    @Operation(
+        summary = "Get the cross-rate matrix of all currencies",
+        description = "Rates of the specified date (today by default) or of the nearest earlier date with rates"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(mediaType = "application/json",
+                schema = @Schema(
+                    example = "{\"dateRate\":\"2024-07-01\",\"currencies\":[\"UAH\",\"EUR\",\"USD\"]," +
+                              "\"rates\":[[1.0,0.0244,0.0256],[40.0,1.0,1.0256],[38.0,0.9268,1.0]]}"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) }),
+        @ApiResponse(responseCode = "401", description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping("/currencies/matrix")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<?> rateMatrix(@Parameter(description = "Date as dd-MM-yyyy") @RequestParam(required = false) String date){
+        LocalDate localDate;
+        try {
+            localDate = date == null ? LocalDate.now() : LocalDate.parse(date, dateFormatter);
+        } catch (DateTimeParseException e) {
+            return new ResponseEntity<>(new AppError("Date must be in format dd-MM-yyyy"), HttpStatus.BAD_REQUEST);
+        }
+        Map.Entry<LocalDate, double[][]> matrix = currencyService.getRateMatrixAsOf(localDate);
+        if (matrix == null){
+            return new ResponseEntity<>(new AppError("There are no exchange rates on this date"), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(CurrencyMatrixDTO.of(matrix.getKey(), matrix.getValue()), HttpStatus.OK);
+    }
+}
@@ -3,9 +3,9 @@ package biz.itehnika.homeaccrest.controllers;
 import biz.itehnika.homeaccrest.dto.PaymentCategoryCreateUpdateDTO;
 import biz.itehnika.homeaccrest.dto.PaymentCategoryDTO;
 import biz.itehnika.homeaccrest.exceptions.AppError;
-import biz.itehnika.homeaccrest.models.Customer;
-import biz.itehnika.homeaccrest.services.CustomerService;
 import biz.itehnika.homeaccrest.services.PaymentCategoryService;
+import biz.itehnika.homeaccrest.services.PaymentService;
+import biz.itehnika.homeaccrest.utils.CustomerPrincipal;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,9 +19,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
 import java.util.List;
 
 @Tag(name = "Payment category activity",
@@ -32,8 +32,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PaymentCategoryController {
 
-    private final CustomerService customerService;
     private final PaymentCategoryService paymentCategoryService;
+    private final PaymentService paymentService;
     
     
     @Operation(
@@ -54,9 +54,8 @@ public class PaymentCategoryController {
     )
     @GetMapping("/categories")
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_USER')")
-    public ResponseEntity<?> categoriesList(Principal principal){
-        Customer customer = customerService.findByEmail(principal.getName());
-        List<PaymentCategoryDTO> paymentCategoryDTOList = PaymentCategoryDTO.listOf(paymentCategoryService.getPaymentCategoriesByCustomer(customer));
+    public ResponseEntity<?> categoriesList(@AuthenticationPrincipal CustomerPrincipal principal){
+        List<PaymentCategoryDTO> paymentCategoryDTOList = PaymentCategoryDTO.listOf(paymentCategoryService.getPaymentCategoriesByCustomerId(principal.getId()));
         return new ResponseEntity<>(paymentCategoryDTOList, HttpStatus.OK);
     }
     
@@ -76,14 +75,12 @@ public class PaymentCategoryController {
     @PostMapping(value = "/categories")
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_USER')")
     public ResponseEntity<?> newCategory(@Parameter(schema = @Schema(example = "{\"name\":\"HEALTH\",\"description\":\"Medicines, clinics, food additives ...\"}"))
-                                         @RequestBody PaymentCategoryCreateUpdateDTO paymentCategoryCreateUpdateDTO, Principal principal) {
-
-        Customer customer = customerService.findByEmail(principal.getName());
-        
-        if (paymentCategoryService.getByNameAndCustomer(paymentCategoryCreateUpdateDTO.getName(), customer) != null) {
+                                         @RequestBody PaymentCategoryCreateUpdateDTO paymentCategoryCreateUpdateDTO,
+                                         @AuthenticationPrincipal CustomerPrincipal principal) {
+        if (paymentCategoryService.getByNameAndCustomerId(paymentCategoryCreateUpdateDTO.getName(), principal.getId()) != null) {
             return new ResponseEntity<>(new AppError("Category with specified name for this customer already exists"), HttpStatus.BAD_REQUEST);
         }
-        paymentCategoryService.addPaymentCategory(paymentCategoryCreateUpdateDTO, customer);
+        paymentCategoryService.addPaymentCategory(paymentCategoryCreateUpdateDTO, principal.getId());
         return ResponseEntity.ok().build();
     }
     
@@ -104,10 +101,10 @@ public class PaymentCategoryController {
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_USER')")
     @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
     public ResponseEntity<Void> deleteCategories(@Parameter(schema = @Schema(example = "[56, 95, 134]"))
-                                                       @RequestBody List<Long> toDeleteList, Principal principal) {
-        Customer customer = customerService.findByEmail(principal.getName());
+                                                       @RequestBody List<Long> toDeleteList,
+                                                       @AuthenticationPrincipal CustomerPrincipal principal) {
         if (toDeleteList != null && !toDeleteList.isEmpty()) {
-            paymentCategoryService.deletePaymentCategories(toDeleteList, customer);
+            paymentService.deletePaymentCategories(toDeleteList, principal.getId());
         }
         return ResponseEntity.ok().build();
     }
@@ -130,16 +127,16 @@ public class PaymentCategoryController {
     @PutMapping("/categories/{id}")
     @PreAuthorize("hasAnyRole('ROLE_USER','ROLE_ADMIN')")
     public ResponseEntity<?> updateCategory (@PathVariable(value = "id") Long id,
-                                             @RequestBody PaymentCategoryCreateUpdateDTO categoryCreateUpdateDTO, Principal principal) {
-        Customer customer = customerService.findByEmail(principal.getName());
+                                             @RequestBody PaymentCategoryCreateUpdateDTO categoryCreateUpdateDTO,
+                                             @AuthenticationPrincipal CustomerPrincipal principal) {
         if(!paymentCategoryService.existsById(id)){
             return new ResponseEntity<>(new AppError("Category with specified ID not exists"), HttpStatus.BAD_REQUEST);
         }else {
-            if (!paymentCategoryService.getById(id).getCustomer().getId().equals(customer.getId())){
+            if (!paymentCategoryService.existsByIdAndCustomerId(id, principal.getId())){
                 return new ResponseEntity<>(new AppError("Category ID is wrong for this customer"), HttpStatus.BAD_REQUEST);
             }
         }
-        if (paymentCategoryService.getByNameAndCustomer(categoryCreateUpdateDTO.getName(), customer) != null) {
+        if (paymentCategoryService.getByNameAndCustomerId(categoryCreateUpdateDTO.getName(), principal.getId()) != null) {
             return new ResponseEntity<>(new AppError("Category with specified name already exists"), HttpStatus.BAD_REQUEST);
         }
         paymentCategoryService.updatePaymentCategory(id, categoryCreateUpdateDTO);
@@ -160,9 +157,8 @@ public class PaymentCategoryController {
     )
     @GetMapping(value = "/categories/init")
     @PreAuthorize("hasAnyRole('ROLE_USER')")
-    public ResponseEntity<?> initCategories(Principal principal){
-        Customer customer = customerService.findByEmail(principal.getName());
-        paymentCategoryService.initPaymentCategoriesForCustomer(customer);
+    public ResponseEntity<?> initCategories(@AuthenticationPrincipal CustomerPrincipal principal){
+        paymentCategoryService.initPaymentCategoriesForCustomer(principal.getId());
         return ResponseEntity.ok().build();
     }
     
@@ -5,7 +5,15 @@ import biz.itehnika.homeaccrest.exceptions.AppError;
 import biz.itehnika.homeaccrest.models.*;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
 import biz.itehnika.homeaccrest.services.*;
+import biz.itehnika.homeaccrest.utils.CustomerPrincipal;
+import biz.itehnika.homeaccrest.utils.CustomerReferences;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,15 +23,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.security.Principal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 
 @Tag(name = "Payment activity",
@@ -38,13 +53,25 @@ public class PaymentController {
     public final CustomerService customerService;
     public final CurrencyService currencyService;
     public final AccountService accountService;
+    public final PaymentRollupService paymentRollupService;
+    public final PaymentReferenceService paymentReferenceService;
+    public final ObjectMapper objectMapper;
     
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+    
+    private static final List<String> SUMMARY_GROUP_BY = List.of("day", "week", "month", "year");
+    
+    @Value("${payments.page.max-limit:1000}")
+    private int pageMaxLimit;
     
     
     
     @Operation(
         summary = "Get a list of payments by the period and settings of the current customer",
-        description = ""
+        description = "Without 'limit' the whole list is returned. With 'limit' the response is one page " +
+                      "{\"payments\":[...],\"nextCursor\":\"...\"}, the next page is requested with 'cursor' = 'nextCursor'. " +
+                      "With 'withTotals' = true (whole list only) the response is {\"payments\":[...],\"onScreenSums\":{\"UAH\":-1200.0,...}}, " +
+                      "the sums are the same as the on-screen sums of the statistic"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200",
@@ -71,6 +98,9 @@ public class PaymentController {
                                 "\"paymentCategoryName\":\"FOOD\"," +
                                 "\"accountName\":\"Novus\"}" +
                               "]"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) }),
         @ApiResponse(responseCode = "401",
             description = "Unauthorized",
             content = { @Content(mediaType = "application/json") })
@@ -78,16 +108,158 @@ public class PaymentController {
     )
     @GetMapping("/payments")
     @PreAuthorize("hasAnyRole('ROLE_USER')")
-    public ResponseEntity<?> paymentsList(Principal principal){
+    public ResponseEntity<?> paymentsList(@Parameter(description = "Page size") @RequestParam(required = false) Integer limit,
+                                          @Parameter(description = "'nextCursor' from the previous page") @RequestParam(required = false) String cursor,
+                                          @Parameter(description = "Add the on-screen sums by currencies") @RequestParam(defaultValue = "false") boolean withTotals,
+                                          Principal principal){
+        Customer customer = customerService.findByEmail(principal.getName());
+        if (withTotals) {
+            if (limit != null || cursor != null) {
+                return new ResponseEntity<>(new AppError("Totals are available for the whole list only"), HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(paymentService.getPaymentsWithTotalsByCustomerAndAllFilters(customer), HttpStatus.OK);
+        }
+        if (limit == null && cursor == null) {
+            List<PaymentDTO> paymentDTOList = PaymentDTO.listOfRows(paymentService.getPaymentsByCustomerAndAllFilters(customer));
+            return new ResponseEntity<>(paymentDTOList, HttpStatus.OK);
+        }
+        if (limit == null) {
+            limit = pageMaxLimit;
+        }
+        if (limit < 1 || limit > pageMaxLimit) {
+            return new ResponseEntity<>(new AppError("Limit must be between 1 and " + pageMaxLimit), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(paymentService.getPaymentsPageByCustomerAndAllFilters(customer, cursor, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new AppError(e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    
+    @Operation(
+        summary = "Stream payments by the period and settings of the current customer",
+        description = "Requested with 'Accept: application/x-ndjson'. One PaymentDTO JSON object per line, " +
+                      "rows are written as they are read from the database"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                schema = @Schema(
+                    example = "{\"id\":54,\"dateTime\":\"21-07-2024 15:18\",\"direction\":true,\"status\":false,\"amount\":456.78," +
+                                "\"currencyName\":\"EUR\",\"description\":\"Service maintenance\",\"paymentCategoryName\":\"CAR\",\"accountName\":\"Car service\"}\n" +
+                              "{\"id\":128,\"dateTime\":\"23-07-2024 09:30\",\"direction\":false,\"status\":false,\"amount\":99.00," +
+                                "\"currencyName\":\"UAH\",\"description\":\"Supermarket\",\"paymentCategoryName\":\"FOOD\",\"accountName\":\"Novus\"}\n"))),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping(value = "/payments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<StreamingResponseBody> paymentsStream(Principal principal){
+        Customer customer = customerService.findByEmail(principal.getName());
+        StreamingResponseBody body = outputStream -> {
+            paymentService.streamPaymentsByCustomerAndAllFilters(customer, paymentDTO -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(paymentDTO));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    
+    @Operation(
+        summary = "Get total, on-screen and today's sums by currencies for the current customer",
+        description = "On-screen sums use the active period and filters of the customer"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = "application/json",
+                schema = @Schema(
+                    example = "{\"totalSumUAH\":15400.5,\"totalSumEUR\":356.0,\"totalSumUSD\":0.0," +
+                               "\"onScreenSumUAH\":-1200.0,\"onScreenSumEUR\":100.0,\"onScreenSumUSD\":0.0," +
+                               "\"dailySumUAH\":-99.0,\"dailySumEUR\":0.0,\"dailySumUSD\":0.0}"))),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping("/payments/statistic")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<Map<String, Double>> paymentsStatistic(Principal principal){
+        Customer customer = customerService.findByEmail(principal.getName());
+        return ResponseEntity.ok(paymentService.getStatistic(customer));
+    }
+    
+    
+    @Operation(
+        summary = "Get income and waste by time buckets for the current customer",
+        description = "Uses the active period and filters of the customer. Values of every series are aligned with 'buckets'"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = "application/json",
+                schema = @Schema(
+                    example = "{\"groupBy\":\"month\",\"buckets\":[\"2024-06-01\",\"2024-07-01\"]," +
+                              "\"series\":[{\"currencyName\":\"UAH\",\"paymentCategoryName\":\"FOOD\"," +
+                              "\"income\":[0.0,0.0],\"waste\":[5230.5,4870.0],\"count\":[31,28]}]}"))),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) }),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @GetMapping("/payments/summary")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<?> paymentsSummary(@Parameter(description = "day, week, month or year") @RequestParam(defaultValue = "month") String groupBy,
+                                             @Parameter(description = "'category' to split by categories") @RequestParam(required = false) String by,
+                                             Principal principal){
+        if (!SUMMARY_GROUP_BY.contains(groupBy)){
+            return new ResponseEntity<>(new AppError("groupBy must be one of " + SUMMARY_GROUP_BY), HttpStatus.BAD_REQUEST);
+        }
+        if (by != null && !by.equals("category")){
+            return new ResponseEntity<>(new AppError("by may only be 'category'"), HttpStatus.BAD_REQUEST);
+        }
         Customer customer = customerService.findByEmail(principal.getName());
-        List<PaymentDTO> paymentDTOList = PaymentDTO.listOf(paymentService.getPaymentsByCustomerAndAllFilters(customer));
-        return new ResponseEntity<>(paymentDTOList, HttpStatus.OK);
+        return ResponseEntity.ok(paymentService.getSummary(customer, groupBy, by != null));
+    }
+    
+    
+    @Operation(
+        summary = "Rebuild the daily payment rollups of all customers from the payments",
+        description = "Repair operation, rollups are kept up to date by payment operations"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+            description = "OK",
+            content =  @Content(mediaType = "application/json",
+                schema = @Schema(example = "{\"rows\":1543}"))),
+        @ApiResponse(responseCode = "401",
+            description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") })
+    }
+    )
+    @PostMapping("/payments/rollups/rebuild")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildPaymentRollups(){
+        return ResponseEntity.ok(Map.of("rows", paymentRollupService.rebuildAll()));
     }
     
     
     @Operation(
         summary = "Add new payment for customer",
-        description = ""
+        description = "'accountId' and 'paymentCategoryId' may be sent instead of (or together with, then they win) the names"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK",
@@ -110,20 +282,60 @@ public class PaymentController {
                                                                                "\"accountName\":\"My wallet\"}"
                                                                    )
                                                   )
-                                         @RequestBody PaymentCreateUpdateDTO paymentCreateUpdateDTO, Principal principal) {
+                                         @RequestBody PaymentCreateUpdateDTO paymentCreateUpdateDTO,
+                                         @AuthenticationPrincipal CustomerPrincipal principal) {
         
-        Customer customer = customerService.findByEmail(principal.getName());
-        
-        if (paymentCategoryService.getByNameAndCustomer(paymentCreateUpdateDTO.getPaymentCategoryName(), customer) == null) {
-            return new ResponseEntity<>(new AppError("Category with specified name does not exist"), HttpStatus.BAD_REQUEST);
+        AppError referenceError = checkReferences(paymentCreateUpdateDTO, principal.getId());
+        if (referenceError != null) {
+            return new ResponseEntity<>(referenceError, HttpStatus.BAD_REQUEST);
         }
-        if (accountService.getAccountByNameAndCustomer(paymentCreateUpdateDTO.getAccountName(), customer) == null) {
-            return new ResponseEntity<>(new AppError("Account with specified name does not exist"), HttpStatus.BAD_REQUEST);
-        }
-        paymentService.addPayment(paymentCreateUpdateDTO, customer);
+        paymentService.addPayment(paymentCreateUpdateDTO, principal.getId());
         return ResponseEntity.ok().build();
     }
     
+    @Operation(
+        summary = "Import payments for customer from a CSV file or a JSON array",
+        description = "CSV needs a header line: dateTime,direction,status,amount,description,paymentCategoryName,accountName. " +
+                      "JSON is an array of the same objects as for adding a payment. " +
+                      "Nothing is imported if any row is wrong"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(example = "{\"rows\":5000,\"millis\":850,\"rowsPerSecond\":5882}")) }),
+        @ApiResponse(responseCode = "401", description = "Unauthorized",
+            content = { @Content(mediaType = "application/json") }),
+        @ApiResponse(responseCode = "400", description = "Bad Request",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = AppError.class)) })
+    }
+    )
+    @PostMapping(value = "/payments/import", consumes = "text/csv")
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<?> importPaymentsCsv(InputStream inputStream, @AuthenticationPrincipal CustomerPrincipal principal) throws IOException {
+        CsvSchema schema = CsvSchema.emptySchema().withHeader();
+        return importPayments(CSV_MAPPER.readerFor(PaymentCreateUpdateDTO.class).with(schema), inputStream, principal);
+    }
+    
+    @PostMapping(value = "/payments/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyRole('ROLE_USER')")
+    public ResponseEntity<?> importPaymentsJson(InputStream inputStream, @AuthenticationPrincipal CustomerPrincipal principal) throws IOException {
+        return importPayments(objectMapper.readerFor(PaymentCreateUpdateDTO.class), inputStream, principal);
+    }
+    
+    private ResponseEntity<?> importPayments(ObjectReader reader, InputStream inputStream, CustomerPrincipal principal) throws IOException {
+        long start = System.nanoTime();
+        int rows;
+        try (MappingIterator<PaymentCreateUpdateDTO> iterator = reader.readValues(inputStream)) {
+            rows = paymentService.importPayments(iterator, principal.getId());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new AppError(e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (JacksonException e) {
+            return new ResponseEntity<>(new AppError("Import data is wrong: " + e.getOriginalMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(PaymentImportDTO.of(rows, System.nanoTime() - start));
+    }
+    
     
     @Operation(
         summary = "Delete payments for customer by the payments id's list",
@@ -140,10 +352,10 @@ public class PaymentController {
     @PreAuthorize("hasAnyRole('ROLE_USER')")
     @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
     public ResponseEntity<Void> deletePayments(@Parameter(schema = @Schema(example = "[56, 95, 134]"))
-                                                 @RequestBody List<Long> toDeleteList, Principal principal) {
-        Customer customer = customerService.findByEmail(principal.getName());
+                                                 @RequestBody List<Long> toDeleteList,
+                                                 @AuthenticationPrincipal CustomerPrincipal principal) {
         if (toDeleteList != null && !toDeleteList.isEmpty()) {
-            paymentService.deletePayments(toDeleteList, customer);
+            paymentService.deletePayments(toDeleteList, principal.getId());
         }
         return ResponseEntity.ok().build();
     }
@@ -151,7 +363,7 @@ public class PaymentController {
     
     @Operation(
         summary = "Update payment by ID",
-        description = ""
+        description = "'accountId' and 'paymentCategoryId' may be sent instead of (or together with, then they win) the names"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK",
@@ -175,21 +387,39 @@ public class PaymentController {
                                                "\"accountName\":\"My wallet\"}"
                                            )
                                            )
-                                           @RequestBody PaymentCreateUpdateDTO paymentCreateUpdateDTO, Principal principal) {
+                                           @RequestBody PaymentCreateUpdateDTO paymentCreateUpdateDTO,
+                                           @AuthenticationPrincipal CustomerPrincipal principal) {
         
-        Customer customer = customerService.findByEmail(principal.getName());
         if(!paymentService.existsById(id)){
             return new ResponseEntity<>(new AppError("Payment with specified ID not exists"), HttpStatus.BAD_REQUEST);
         }else {
-            if (!paymentService.getById(id).getCustomer().getId().equals(customer.getId())){
+            if (!paymentService.existsByIdAndCustomerId(id, principal.getId())){
                 return new ResponseEntity<>(new AppError("Payment ID is wrong for this customer"), HttpStatus.BAD_REQUEST);
             }
         }
+        AppError referenceError = checkReferences(paymentCreateUpdateDTO, principal.getId());
+        if (referenceError != null) {
+            return new ResponseEntity<>(referenceError, HttpStatus.BAD_REQUEST);
+        }
 
         paymentService.updatePayment(id, paymentCreateUpdateDTO);
         return ResponseEntity.ok().build();
     }
     
+    // Resolved from the cached references of the customer, ids take priority over names
+    private AppError checkReferences(PaymentCreateUpdateDTO paymentCreateUpdateDTO, Long customerId){
+        CustomerReferences references = paymentReferenceService.getReferences(customerId);
+        if (references.findPaymentCategoryId(paymentCreateUpdateDTO.getPaymentCategoryId(), paymentCreateUpdateDTO.getPaymentCategoryName()) == null) {
+            return new AppError(paymentCreateUpdateDTO.getPaymentCategoryId() == null ? "Category with specified name does not exist"
+                                                                                     : "Category ID is wrong for this customer");
+        }
+        if (references.findAccount(paymentCreateUpdateDTO.getAccountId(), paymentCreateUpdateDTO.getAccountName()) == null) {
+            return new AppError(paymentCreateUpdateDTO.getAccountId() == null ? "Account with specified name does not exist"
+                                                                             : "Account ID is wrong for this customer");
+        }
+        return null;
+    }
+    
     
     @Operation(
         summary = "Exchange currency for the current customer",
@@ -213,15 +443,15 @@ public class PaymentController {
                                                                                      "\"amount\":127.89}"
                                                                          )
                                               )
-                                              @RequestBody PaymentExchTransDTO paymentExchTransDTO, Principal principal) {
+                                              @RequestBody PaymentExchTransDTO paymentExchTransDTO,
+                                              @AuthenticationPrincipal CustomerPrincipal principal) {
 
-        Customer customer = customerService.findByEmail(principal.getName());
         if(!accountService.existsById(paymentExchTransDTO.getSrcAccountId()) ||
            !accountService.existsById(paymentExchTransDTO.getDstAccountId())){
             return new ResponseEntity<>(new AppError("Account(s) with specified ID(s) not exists"), HttpStatus.BAD_REQUEST);
         }else {
-            if (!accountService.getById(paymentExchTransDTO.getSrcAccountId()).getCustomer().getId().equals(customer.getId()) ||
-                !accountService.getById(paymentExchTransDTO.getDstAccountId()).getCustomer().getId().equals(customer.getId())){
+            if (!accountService.existsByIdAndCustomerId(paymentExchTransDTO.getSrcAccountId(), principal.getId()) ||
+                !accountService.existsByIdAndCustomerId(paymentExchTransDTO.getDstAccountId(), principal.getId())){
                 return new ResponseEntity<>(new AppError("Account ID(s) is(are) wrong for this customer"), HttpStatus.BAD_REQUEST);
             }
         }
@@ -230,30 +460,17 @@ public class PaymentController {
         Double amount = paymentExchTransDTO.getAmount();
         CurrencyName srcCurrencyName = srcAccount.getCurrencyName();
         CurrencyName dstCurrencyName = dstAccount.getCurrencyName();
-        LocalDate localDate = LocalDate.parse(paymentExchTransDTO.getDateTime().split(" ")[0]);
         LocalDateTime localDateTime = LocalDateTime.parse(paymentExchTransDTO.getDateTime());
 
         if (srcCurrencyName.equals(dstCurrencyName)){
             return new ResponseEntity<>(new AppError("Accounts must have different currencies"), HttpStatus.BAD_REQUEST);
         }
-        if (!currencyService.isRatesExistByDate(localDate)){
+        Double rate = currencyService.getExchangeRate(srcCurrencyName, dstCurrencyName, localDateTime.toLocalDate());
+        if (rate == null){
             return new ResponseEntity<>(new AppError("There are no exchange rates on this date"), HttpStatus.BAD_REQUEST);
         }
-        Double rate;
-        if (!srcCurrencyName.equals(CurrencyName.UAH)){
-            Currency srcCurrencyRates = currencyService.getCurrencyByNameAndDate(srcCurrencyName, localDate);
-            if (dstCurrencyName.equals(CurrencyName.UAH)){
-                rate = srcCurrencyRates.getBuyRate();
-            }else{
-                Currency dstCurrencyRates = currencyService.getCurrencyByNameAndDate(dstCurrencyName, localDate);
-                rate = srcCurrencyRates.getBuyRate() / dstCurrencyRates.getSaleRate();
-            }
-        }else{
-            Currency dstCurrencyRates = currencyService.getCurrencyByNameAndDate(dstCurrencyName, localDate);
-                rate = 1 / dstCurrencyRates.getSaleRate();
-        }
 
-        paymentService.currencyExchange(srcAccount, dstAccount, amount, amount*rate, localDateTime, customer);
+        paymentService.currencyExchange(srcAccount, dstAccount, amount, amount*rate, localDateTime, principal.getId());
         
         return ResponseEntity.ok(null);
     }
@@ -281,15 +498,15 @@ public class PaymentController {
                                                                                     "\"amount\":127.89}"
                                                                         )
                                                        )
-                                                 @RequestBody PaymentExchTransDTO paymentExchTransDTO, Principal principal) {
+                                                 @RequestBody PaymentExchTransDTO paymentExchTransDTO,
+                                                 @AuthenticationPrincipal CustomerPrincipal principal) {
         
-        Customer customer = customerService.findByEmail(principal.getName());
         if(!accountService.existsById(paymentExchTransDTO.getSrcAccountId()) ||
             !accountService.existsById(paymentExchTransDTO.getDstAccountId())){
             return new ResponseEntity<>(new AppError("Account(s) with specified ID(s) not exists"), HttpStatus.BAD_REQUEST);
         }else {
-            if (!accountService.getById(paymentExchTransDTO.getSrcAccountId()).getCustomer().getId().equals(customer.getId()) ||
-                !accountService.getById(paymentExchTransDTO.getDstAccountId()).getCustomer().getId().equals(customer.getId())){
+            if (!accountService.existsByIdAndCustomerId(paymentExchTransDTO.getSrcAccountId(), principal.getId()) ||
+                !accountService.existsByIdAndCustomerId(paymentExchTransDTO.getDstAccountId(), principal.getId())){
                 return new ResponseEntity<>(new AppError("Account ID(s) is(are) wrong for this customer"), HttpStatus.BAD_REQUEST);
             }
         }
@@ -305,7 +522,7 @@ public class PaymentController {
             return new ResponseEntity<>(new AppError("Accounts must have the same currencies"), HttpStatus.BAD_REQUEST);
         }
 
-        paymentService.transferToOwnAccount(srcAccount, dstAccount, amount, localDateTime, customer);
+        paymentService.transferToOwnAccount(srcAccount, dstAccount, amount, localDateTime, principal.getId());
 
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,21 @@
+package biz.itehnika.homeaccrest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@Data
+@AllArgsConstructor
+public class BalancePointDTO {
+
+    static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+
+    private String dateTime;
+    private Double balance;             // balance of the account after the payments of this moment
+
+    public static BalancePointDTO of(LocalDateTime dateTime, Double balance){
+        return new BalancePointDTO(dateTime.format(dateTimeFormatter), balance);
+    }
+}
@@ -0,0 +1,26 @@
+package biz.itehnika.homeaccrest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.hibernate.stat.CacheRegionStatistics;
+
+@Data
+@AllArgsConstructor
+public class CacheRegionStatisticDTO {
+    private String region;
+    private Long hitCount;
+    private Long missCount;
+    private Long putCount;
+    private Double hitRate;             // hits / (hits + misses), null - the region wasn't read yet
+
+    // statistics is null for a query region that wasn't used yet
+    public static CacheRegionStatisticDTO of(String region, CacheRegionStatistics statistics){
+        if (statistics == null){
+            return new CacheRegionStatisticDTO(region, 0L, 0L, 0L, null);
+        }
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+        return new CacheRegionStatisticDTO(region, hits, misses, statistics.getPutCount(),
+                                           hits + misses == 0 ? null : (double) hits / (hits + misses));
+    }
+}
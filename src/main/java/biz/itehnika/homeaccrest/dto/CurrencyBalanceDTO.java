@@ -0,0 +1,18 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CurrencyBalanceDTO {
+    private CurrencyName currencyName;
+    private Double balance;             // sum of account balances in this currency
+    private Double rate;                // base currency units per one unit of this currency
+    private Double baseBalance;
+
+    public static CurrencyBalanceDTO of(CurrencyName currencyName, Double balance, Double rate){
+        return new CurrencyBalanceDTO(currencyName, balance, rate, balance * rate);
+    }
+}
@@ -24,11 +24,15 @@ public class CurrencyDTO {
     }
 
     public static Currency fromDTO(CurrencyDTO currencyDTO){
+        return fromDTO(currencyDTO, LocalDate.now());
+    }
+
+    public static Currency fromDTO(CurrencyDTO currencyDTO, LocalDate dateRate){
         return new Currency(CurrencyName.valueOf(currencyDTO.getCcy()),
                             CurrencyName.valueOf(currencyDTO.getBase_ccy()),
                             currencyDTO.getBuy(),
                             currencyDTO.getSale(),
-                            LocalDate.now()
+                            dateRate
                            );
     }
 }
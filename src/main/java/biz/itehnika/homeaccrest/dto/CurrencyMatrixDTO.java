@@ -0,0 +1,28 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CurrencyMatrixDTO {
+    private LocalDate dateRate;
+    private List<CurrencyName> currencies;  // order of rows and columns
+    private Double[][] rates;               // rates[src][dst] - dst units per one src unit, null - no rates
+
+    public static CurrencyMatrixDTO of(LocalDate dateRate, double[][] matrix){
+        Double[][] rates = new Double[matrix.length][];
+        for (int src = 0; src < matrix.length; src++){
+            rates[src] = new Double[matrix[src].length];
+            for (int dst = 0; dst < matrix[src].length; dst++){
+                rates[src][dst] = Double.isNaN(matrix[src][dst]) ? null : matrix[src][dst];
+            }
+        }
+        return new CurrencyMatrixDTO(dateRate, Arrays.asList(CurrencyName.values()), rates);
+    }
+}
@@ -0,0 +1,14 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CurrencyStatisticDTO {
+    private CurrencyName currencyName;
+    private Double totalSum;
+    private Double onScreenSum;
+    private Double dailySum;
+}
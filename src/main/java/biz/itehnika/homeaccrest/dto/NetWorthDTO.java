@@ -0,0 +1,19 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class NetWorthDTO {
+    private CurrencyName baseCurrencyName;
+    private Double total;
+    private List<CurrencyBalanceDTO> currencies;
+
+    public static NetWorthDTO of(CurrencyName baseCurrencyName, Double total, List<CurrencyBalanceDTO> currencies){
+        return new NetWorthDTO(baseCurrencyName, total, currencies);
+    }
+}
@@ -21,6 +21,8 @@ public class PaymentCreateUpdateDTO {
     private String description;
     private String paymentCategoryName;
     private String accountName;
+    private Long paymentCategoryId;     // optional, used instead of the name when present
+    private Long accountId;             // optional, used instead of the name when present
 
     public static PaymentCreateUpdateDTO of(String dateTime,
                                             Boolean direction,
@@ -29,7 +31,7 @@ public class PaymentCreateUpdateDTO {
                                             String description,
                                             String paymentCategory,
                                             String account){
-        return new PaymentCreateUpdateDTO(dateTime, direction, status, amount, description, paymentCategory, account);
+        return new PaymentCreateUpdateDTO(dateTime, direction, status, amount, description, paymentCategory, account, null, null);
     }
     
     public static PaymentCreateUpdateDTO of(Payment payment) {
@@ -39,7 +41,9 @@ public class PaymentCreateUpdateDTO {
                                           payment.getAmount(),
                                           payment.getDescription(),
                                           payment.getPaymentCategory().getName(),
-                                          payment.getAccount().getName()
+                                          payment.getAccount().getName(),
+                                          payment.getPaymentCategory().getId(),
+                                          payment.getAccount().getId()
         );
     }
     
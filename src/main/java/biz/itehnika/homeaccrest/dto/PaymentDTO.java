@@ -54,6 +54,28 @@ public class PaymentDTO {
         );
     }
     
+    public static PaymentDTO of(PaymentRowDTO paymentRow) {
+        return new PaymentDTO(paymentRow.getId(),
+                              paymentRow.getDateTime().format(dateTimeFormatter),
+                              paymentRow.getDirection(),
+                              paymentRow.getStatus(),
+                              paymentRow.getAmount(),
+                              paymentRow.getCurrencyName(),
+                              paymentRow.getDescription(),
+                              paymentRow.getPaymentCategoryName(),
+                              paymentRow.getAccountName()
+        );
+    }
+    
+    public static List<PaymentDTO> listOfRows(List<PaymentRowDTO> paymentRowsList) {
+        List<PaymentDTO> paymentDTOList = new ArrayList<>(paymentRowsList.size());
+        
+        for (PaymentRowDTO paymentRow : paymentRowsList){
+            paymentDTOList.add(of(paymentRow));
+        }
+        return paymentDTOList;
+    }
+    
     public static List<PaymentDTO> listOf(List<Payment> paymentsList) {
         List<PaymentDTO> paymentDTOList = new ArrayList<>();
         
@@ -0,0 +1,17 @@
+package biz.itehnika.homeaccrest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PaymentImportDTO {
+    private Integer rows;
+    private Long millis;
+    private Long rowsPerSecond;
+
+    public static PaymentImportDTO of(int rows, long nanos){
+        long millis = nanos / 1_000_000;
+        return new PaymentImportDTO(rows, millis, nanos > 0 ? rows * 1_000_000_000L / nanos : rows);
+    }
+}
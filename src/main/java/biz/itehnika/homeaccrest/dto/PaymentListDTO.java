@@ -0,0 +1,20 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+// Payments of the screen together with their signed sums, every currency is present
+@Data
+@AllArgsConstructor
+public class PaymentListDTO {
+    private List<PaymentDTO> payments;
+    private Map<CurrencyName, Double> onScreenSums;
+
+    public static PaymentListDTO of(List<PaymentDTO> payments, Map<CurrencyName, Double> onScreenSums){
+        return new PaymentListDTO(payments, onScreenSums);
+    }
+}
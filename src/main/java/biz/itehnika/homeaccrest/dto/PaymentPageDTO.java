@@ -0,0 +1,17 @@
+package biz.itehnika.homeaccrest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PaymentPageDTO {
+    private List<PaymentDTO> payments;
+    private String nextCursor;          // null - it was the last page
+
+    public static PaymentPageDTO of(List<PaymentDTO> payments, String nextCursor){
+        return new PaymentPageDTO(payments, nextCursor);
+    }
+}
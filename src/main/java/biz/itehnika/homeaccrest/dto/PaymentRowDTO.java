@@ -0,0 +1,27 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Read-only projection of Payment with exactly the columns of PaymentDTO (built by "select new" in PaymentRepository)
+@Data
+@AllArgsConstructor
+public class PaymentRowDTO {
+
+    private Long id;
+    private LocalDateTime dateTime;
+    private Boolean direction;          // True - income, False - waste
+    private Boolean status;             // True - Completed, False - Scheduled
+    private Double amount;
+    private CurrencyName currencyName;
+    private String description;
+    private String paymentCategoryName;
+    private String accountName;
+
+    public Double getSignedAmount() {
+        return direction ? amount : -amount;
+    }
+}
@@ -0,0 +1,20 @@
+package biz.itehnika.homeaccrest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Columns instead of objects: series values are aligned with buckets
+@Data
+@AllArgsConstructor
+public class PaymentSummaryDTO {
+    private String groupBy;
+    private List<LocalDate> buckets;                // first day of every bucket with payments
+    private List<PaymentSummarySeriesDTO> series;   // one per currency (and category)
+
+    public static PaymentSummaryDTO of(String groupBy, List<LocalDate> buckets, List<PaymentSummarySeriesDTO> series){
+        return new PaymentSummaryDTO(groupBy, buckets, series);
+    }
+}
@@ -0,0 +1,20 @@
+package biz.itehnika.homeaccrest.dto;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PaymentSummarySeriesDTO {
+    private CurrencyName currencyName;
+    private String paymentCategoryName;     // null - not grouped by category, "" - payments without category
+    private double[] income;
+    private double[] waste;
+    private long[] count;
+
+    public static PaymentSummarySeriesDTO of(CurrencyName currencyName, String paymentCategoryName, int bucketsCount){
+        return new PaymentSummarySeriesDTO(currencyName, paymentCategoryName,
+                                           new double[bucketsCount], new double[bucketsCount], new long[bucketsCount]);
+    }
+}
@@ -1,5 +1,6 @@
 package biz.itehnika.homeaccrest.models;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
 import biz.itehnika.homeaccrest.dto.AccountCreateUpdateDTO;
 import biz.itehnika.homeaccrest.models.enums.AccountType;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
@@ -7,11 +8,15 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.ACCOUNT_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,33 @@
+package biz.itehnika.homeaccrest.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long accountId;
+    private LocalDate checkpointDate;
+    private Double balance;             // before checkpointDate: payments up to the previous day
+
+    public BalanceCheckpoint(Long accountId, LocalDate checkpointDate, Double balance) {
+        this.accountId = accountId;
+        this.checkpointDate = checkpointDate;
+        this.balance = balance;
+    }
+}
@@ -1,14 +1,21 @@
 package biz.itehnika.homeaccrest.models;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 import java.time.LocalDate;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = CacheConfig.CURRENCY_REGION)
+@Immutable
 @NoArgsConstructor
 @Getter
 @Setter
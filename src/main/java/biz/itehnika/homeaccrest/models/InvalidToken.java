@@ -1,5 +1,6 @@
 package biz.itehnika.homeaccrest.models;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -18,6 +19,7 @@ public class InvalidToken {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @Column(length = 1024)
     private String token;
     private LocalDateTime validDateTime;
 }
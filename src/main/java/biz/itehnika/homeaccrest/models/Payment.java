@@ -17,7 +17,8 @@ import java.util.Comparator;
 @AllArgsConstructor
 public class Payment implements Comparator {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_seq")
+    @SequenceGenerator(name = "payment_seq", sequenceName = "payment_seq", allocationSize = 50)
     private Long id;
 
     private LocalDateTime dateTime;
@@ -72,4 +73,8 @@ public class Payment implements Comparator {
     public Long getCustomerId() {
         return customer.getId();
     }
+
+    public Double getSignedAmount() {
+        return direction ? amount : -amount;
+    }
 }
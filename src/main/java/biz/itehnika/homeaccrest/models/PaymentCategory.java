@@ -1,16 +1,21 @@
 package biz.itehnika.homeaccrest.models;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.PAYMENT_CATEGORY_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
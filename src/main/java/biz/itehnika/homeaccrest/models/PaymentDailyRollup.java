@@ -0,0 +1,31 @@
+package biz.itehnika.homeaccrest.models;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+// Written only by the native upserts of PaymentDailyRollupRepository
+@Entity
+@Table(name = "payment_daily_rollup")
+@Getter
+@Setter
+@NoArgsConstructor
+public class PaymentDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long customerId;
+    private LocalDate paymentDate;
+    @Enumerated(EnumType.STRING)
+    private CurrencyName currencyName;
+    private Long paymentCategoryId;     // 0 - payments without category
+    private Boolean direction;          // True - income, False - waste
+    private Boolean status;             // True - Completed, False - Scheduled
+    private Double amount;              // sum of the payments amounts
+    private Long paymentsCount;
+}
@@ -1,9 +1,18 @@
 package biz.itehnika.homeaccrest.repos;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
 import biz.itehnika.homeaccrest.models.Account;
 import biz.itehnika.homeaccrest.models.Customer;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -14,5 +23,52 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
 
     boolean existsAccountByNameAndCustomer(String name, Customer customer);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.ACCOUNT_QUERY_REGION)})
     Account findByNameAndCustomer(String name, Customer customer);
+
+    // Owner-scoped by id, Customer is not loaded
+    List<Account> findAccountsByCustomerId(Long customerId);
+
+    List<Account> findAccountsByIdInAndCustomerId(List<Long> ids, Long customerId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.ACCOUNT_QUERY_REGION)})
+    Account findByNameAndCustomerId(String name, Long customerId);
+
+    boolean existsByIdAndCustomerId(Long id, Long customerId);
+
+    interface AccountReferenceView {
+        Long getId();
+        String getName();
+        CurrencyName getCurrencyName();
+    }
+
+    @Query("select a.id as id, a.name as name, a.currencyName as currencyName from Account a where a.customer.id = :customerId")
+    List<AccountReferenceView> findReferencesByCustomerId(@Param("customerId") Long customerId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a set a.balance = coalesce(a.balance, 0.0) + :delta where a.id = :id")
+    void addToBalance(@Param("id") Long id, @Param("delta") Double delta);
+
+    // Same row lock as a balance change, serializes checkpoints with the payment writes of the account
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a.id from Account a where a.id = :id")
+    Long lockById(@Param("id") Long id);
+
+    @Query("select a.id from Account a")
+    List<Long> findAllIds();
+
+    interface CurrencyBalanceView {
+        CurrencyName getCurrencyName();
+        Double getBalance();
+    }
+
+    @Query("select a.currencyName as currencyName, coalesce(sum(a.balance), 0.0) as balance " +
+           "from Account a where a.customer.id = :customerId group by a.currencyName")
+    List<CurrencyBalanceView> sumBalancesByCurrency(@Param("customerId") Long customerId);
+
+    @Query("select coalesce(sum(case when p.direction = true then p.amount else -p.amount end), 0.0) " +
+           "from Payment p where p.account.id = :id")
+    Double getPaymentsSumByAccountId(@Param("id") Long id);
 }
@@ -0,0 +1,23 @@
+package biz.itehnika.homeaccrest.repos;
+
+import biz.itehnika.homeaccrest.models.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    BalanceCheckpoint findFirstByAccountIdAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(Long accountId, LocalDate date);
+
+    BalanceCheckpoint findFirstByAccountIdOrderByCheckpointDateDesc(Long accountId);
+
+    boolean existsByAccountIdAndCheckpointDate(Long accountId, LocalDate checkpointDate);
+
+    // Checkpoints that include payments of the date
+    @Modifying
+    @Query("delete from BalanceCheckpoint c where c.accountId = :accountId and c.checkpointDate > :date")
+    void deleteByAccountIdAndCheckpointDateAfter(@Param("accountId") Long accountId, @Param("date") LocalDate date);
+}
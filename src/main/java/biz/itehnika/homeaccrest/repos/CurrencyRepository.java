@@ -1,15 +1,25 @@
 package biz.itehnika.homeaccrest.repos;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
 import biz.itehnika.homeaccrest.models.Currency;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDate;
 import java.util.List;
 
 public interface CurrencyRepository extends JpaRepository<Currency, Long>  {
 
+    // Rates are inserted with JDBC, CurrencyService evicts the query region after that
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.CURRENCY_QUERY_REGION)})
     Currency findCurrencyByNameAndDateRate(CurrencyName currencyName, LocalDate dateRate);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.CURRENCY_QUERY_REGION)})
     List<Currency> findCurrenciesByDateRate(LocalDate dateRate);
 
     Boolean existsByDateRate(LocalDate localDate);
@@ -2,6 +2,8 @@ package biz.itehnika.homeaccrest.repos;
 
 import biz.itehnika.homeaccrest.models.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -10,4 +12,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Customer findCustomerByEmail(String email);
 
     boolean existsCustomerByEmail(String email);
+
+    @Query("select c.id from Customer c where c.email = :email")
+    Long findIdByEmail(@Param("email") String email);
 }
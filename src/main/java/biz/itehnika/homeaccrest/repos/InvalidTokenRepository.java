@@ -1,10 +1,32 @@
 package biz.itehnika.homeaccrest.repos;
 
 import biz.itehnika.homeaccrest.models.InvalidToken;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface InvalidTokenRepository extends JpaRepository<InvalidToken, Long> {
     
     boolean existsInvalidTokenByToken(String token);
     
+    InvalidToken findFirstByToken(String token);
+    
+    List<InvalidToken> findByValidDateTimeAfter(LocalDateTime dateTime);
+    
+    // One bounded chunk per transaction, uses idx_invalid_token_valid_date_time
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "invalid_token"))
+    @Query(value = "DELETE FROM invalid_token WHERE id IN " +
+                   "(SELECT id FROM invalid_token WHERE valid_date_time < :dateTime LIMIT :batchSize)", nativeQuery = true)
+    int deleteValidBeforeBatch(@Param("dateTime") LocalDateTime dateTime, @Param("batchSize") int batchSize);
+    
 }
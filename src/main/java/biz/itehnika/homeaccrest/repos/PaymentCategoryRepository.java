@@ -1,16 +1,43 @@
 package biz.itehnika.homeaccrest.repos;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
 import biz.itehnika.homeaccrest.models.Customer;
 import biz.itehnika.homeaccrest.models.PaymentCategory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface PaymentCategoryRepository extends JpaRepository<PaymentCategory, Long> {
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.PAYMENT_CATEGORY_QUERY_REGION)})
     PaymentCategory findPaymentCategoryByNameAndCustomer(String name, Customer customer);
 
     boolean existsPaymentCategoryByNameAndCustomer(String name, Customer customer);
 
     List<PaymentCategory> findPaymentCategoriesByCustomer(Customer customer);
+
+    // Owner-scoped by id, Customer is not loaded
+    List<PaymentCategory> findPaymentCategoriesByCustomerId(Long customerId);
+
+    List<PaymentCategory> findPaymentCategoriesByIdInAndCustomerId(List<Long> ids, Long customerId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.PAYMENT_CATEGORY_QUERY_REGION)})
+    PaymentCategory findPaymentCategoryByNameAndCustomerId(String name, Long customerId);
+
+    boolean existsByIdAndCustomerId(Long id, Long customerId);
+
+    interface PaymentCategoryReferenceView {
+        Long getId();
+        String getName();
+    }
+
+    @Query("select pc.id as id, pc.name as name from PaymentCategory pc where pc.customer.id = :customerId")
+    List<PaymentCategoryReferenceView> findReferencesByCustomerId(@Param("customerId") Long customerId);
 }
@@ -0,0 +1,103 @@
+package biz.itehnika.homeaccrest.repos;
+
+import biz.itehnika.homeaccrest.models.PaymentDailyRollup;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PaymentDailyRollupRepository extends JpaRepository<PaymentDailyRollup, Long> {
+
+    String ROLLUP_COLUMNS = "customer_id, payment_date, currency_name, payment_category_id, direction, status";
+    String ROLLUP_SELECT_FROM_PAYMENT =
+        "SELECT customer_id, CAST(date_time AS DATE), currency_name, COALESCE(payment_category_id, 0), direction, status, " +
+        "SUM(amount), COUNT(*) FROM payment " +
+        "WHERE customer_id IS NOT NULL AND date_time IS NOT NULL AND currency_name IS NOT NULL " +
+        "AND direction IS NOT NULL AND status IS NOT NULL AND amount IS NOT NULL ";
+    String ROLLUP_GROUP_BY =
+        "GROUP BY customer_id, CAST(date_time AS DATE), currency_name, COALESCE(payment_category_id, 0), direction, status";
+
+    List<PaymentDailyRollup> findByCustomerId(Long customerId);
+
+    // Native writes name their table in HINT_NATIVE_SPACES, otherwise Hibernate clears the whole second-level cache
+
+    // Adds the delta (negative when payments are removed) to the row of the key, the row is created if needed
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "payment_daily_rollup"))
+    @Query(value = "INSERT INTO payment_daily_rollup (" + ROLLUP_COLUMNS + ", amount, payments_count) " +
+                   "VALUES (:customerId, :paymentDate, :currencyName, :paymentCategoryId, :direction, :status, :amount, :paymentsCount) " +
+                   "ON CONFLICT (" + ROLLUP_COLUMNS + ") DO UPDATE SET " +
+                   "amount = payment_daily_rollup.amount + EXCLUDED.amount, " +
+                   "payments_count = payment_daily_rollup.payments_count + EXCLUDED.payments_count", nativeQuery = true)
+    void upsert(@Param("customerId") Long customerId,
+                @Param("paymentDate") LocalDate paymentDate,
+                @Param("currencyName") String currencyName,
+                @Param("paymentCategoryId") Long paymentCategoryId,
+                @Param("direction") Boolean direction,
+                @Param("status") Boolean status,
+                @Param("amount") Double amount,
+                @Param("paymentsCount") Long paymentsCount);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "payment_daily_rollup"))
+    @Query(value = "DELETE FROM payment_daily_rollup WHERE customer_id = :customerId AND payments_count <= 0", nativeQuery = true)
+    void deleteEmptyByCustomerId(@Param("customerId") Long customerId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "payment_daily_rollup"))
+    @Query(value = "DELETE FROM payment_daily_rollup WHERE customer_id = :customerId", nativeQuery = true)
+    void deleteAllByCustomerId(@Param("customerId") Long customerId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "payment_daily_rollup"))
+    @Query(value = "INSERT INTO payment_daily_rollup (" + ROLLUP_COLUMNS + ", amount, payments_count) " +
+                   ROLLUP_SELECT_FROM_PAYMENT + "AND customer_id = :customerId " + ROLLUP_GROUP_BY, nativeQuery = true)
+    int insertFromPaymentsByCustomerId(@Param("customerId") Long customerId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "payment_daily_rollup"))
+    @Query(value = "DELETE FROM payment_daily_rollup", nativeQuery = true)
+    void deleteAllRollups();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "payment_daily_rollup"))
+    @Query(value = "INSERT INTO payment_daily_rollup (" + ROLLUP_COLUMNS + ", amount, payments_count) " +
+                   ROLLUP_SELECT_FROM_PAYMENT + ROLLUP_GROUP_BY, nativeQuery = true)
+    int insertFromAllPayments();
+
+    interface SummaryRowView {
+        LocalDate getBucket();
+        String getCurrencyName();
+        String getCategoryName();
+        Double getIncome();
+        Double getWaste();
+        Long getPaymentsCount();
+    }
+
+    // Buckets start at date_trunc(:groupBy) of the day, categories are grouped only when :byCategory
+    @Query(value = "SELECT CAST(date_trunc(:groupBy, CAST(r.payment_date AS TIMESTAMP)) AS DATE) AS bucket, " +
+                   "r.currency_name AS currencyName, " +
+                   "CASE WHEN :byCategory THEN COALESCE(pc.name, '') END AS categoryName, " +
+                   "SUM(CASE WHEN r.direction THEN r.amount ELSE 0 END) AS income, " +
+                   "SUM(CASE WHEN r.direction THEN 0 ELSE r.amount END) AS waste, " +
+                   "SUM(r.payments_count) AS paymentsCount " +
+                   "FROM payment_daily_rollup r LEFT JOIN payment_category pc ON pc.id = r.payment_category_id " +
+                   "WHERE r.customer_id = :customerId AND r.currency_name IN (:currencyNames) " +
+                   "AND r.direction IN (:directions) AND r.status IN (:statuses) " +
+                   "AND r.payment_date BETWEEN :startDate AND :endDate " +
+                   "GROUP BY 1, 2, 3 ORDER BY 2, 3, 1", nativeQuery = true)
+    List<SummaryRowView> getSummaryByCustomerId(@Param("customerId") Long customerId,
+                                                @Param("currencyNames") List<String> currencyNames,
+                                                @Param("directions") List<Boolean> directions,
+                                                @Param("statuses") List<Boolean> statuses,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate,
+                                                @Param("groupBy") String groupBy,
+                                                @Param("byCategory") boolean byCategory);
+}
@@ -1,14 +1,21 @@
 package biz.itehnika.homeaccrest.repos;
 
+import biz.itehnika.homeaccrest.dto.PaymentRowDTO;
 import biz.itehnika.homeaccrest.models.Customer;
 import biz.itehnika.homeaccrest.models.Payment;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, PaymentRowRepository {
 
     List<Payment> findByCustomerOrderByDateTime(Customer customer);
     List<Payment> findByCustomerAndDateTimeBetweenOrderByDateTime(Customer customer, LocalDateTime startDate, LocalDateTime endDate);
@@ -19,4 +26,73 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
                                                                                                                 List<Boolean> statuses,
                                                                                                                 LocalDateTime startDate,
                                                                                                                 LocalDateTime endDate);
+
+    boolean existsByIdAndCustomer_Id(Long id, Long customerId);
+
+    // One joined statement with only the columns of PaymentDTO, no Payment/PaymentCategory/Account/Customer entities are built
+    String PAYMENT_ROW_SELECT = "select new biz.itehnika.homeaccrest.dto.PaymentRowDTO(p.id, p.dateTime, p.direction, p.status, " +
+                                "p.amount, p.currencyName, p.description, pc.name, a.name) " +
+                                "from Payment p left join p.paymentCategory pc left join p.account a ";
+    String ROWS_ORDER = "order by p.dateTime asc, p.id asc";
+
+    @Query(PAYMENT_ROW_SELECT + "where p.customer = :customer and p.currencyName = :currencyName")
+    List<PaymentRowDTO> findRowsByCustomerAndCurrencyName(@Param("customer") Customer customer,
+                                                          @Param("currencyName") CurrencyName currencyName);
+
+    @Query(PAYMENT_ROW_SELECT + "where p.customer = :customer and p.dateTime between :startDate and :endDate")
+    List<PaymentRowDTO> findRowsByCustomerAndDateTimeBetween(@Param("customer") Customer customer,
+                                                             @Param("startDate") LocalDateTime startDate,
+                                                             @Param("endDate") LocalDateTime endDate);
+
+    interface DeletedPaymentView {
+        Long getAccountId();
+        LocalDateTime getDateTime();
+        String getCurrencyName();
+        Long getPaymentCategoryId();
+        Boolean getDirection();
+        Boolean getStatus();
+        Double getAmount();
+    }
+
+    // Ownership-checked bulk delete, payments of other customers are silently skipped
+    @Query(value = "DELETE FROM payment WHERE id IN (:ids) AND customer_id = :customerId " +
+                   "RETURNING account_id AS accountId, date_time AS dateTime, currency_name AS currencyName, " +
+                   "payment_category_id AS paymentCategoryId, direction, status, amount", nativeQuery = true)
+    List<DeletedPaymentView> deleteByIdInAndCustomerIdReturning(@Param("ids") List<Long> ids,
+                                                                @Param("customerId") Long customerId);
+
+    @Query(value = "DELETE FROM payment WHERE payment_category_id IN (:paymentCategoryIds) AND customer_id = :customerId " +
+                   "RETURNING account_id AS accountId, date_time AS dateTime, currency_name AS currencyName, " +
+                   "payment_category_id AS paymentCategoryId, direction, status, amount", nativeQuery = true)
+    List<DeletedPaymentView> deleteByPaymentCategoryIdInAndCustomerIdReturning(@Param("paymentCategoryIds") List<Long> paymentCategoryIds,
+                                                                               @Param("customerId") Long customerId);
+
+    @Query("select coalesce(sum(case when p.direction = true then p.amount else -p.amount end), 0.0) " +
+           "from Payment p where p.account.id = :accountId and p.dateTime < :dateTime")
+    Double getSignedSumByAccountIdBefore(@Param("accountId") Long accountId, @Param("dateTime") LocalDateTime dateTime);
+
+    @Query("select coalesce(sum(case when p.direction = true then p.amount else -p.amount end), 0.0) " +
+           "from Payment p where p.account.id = :accountId and p.dateTime >= :startDate and p.dateTime < :endDate")
+    Double getSignedSumByAccountIdBetween(@Param("accountId") Long accountId,
+                                          @Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate);
+
+    @Query("select coalesce(sum(case when p.direction = true then p.amount else -p.amount end), 0.0) " +
+           "from Payment p where p.account.id = :accountId and p.dateTime >= :dateTime")
+    Double getSignedSumByAccountIdFrom(@Param("accountId") Long accountId, @Param("dateTime") LocalDateTime dateTime);
+
+    interface BalancePointView {
+        LocalDateTime getDateTime();
+        Double getBalance();
+    }
+
+    // Running sum of the account payments of the period, the opening balance is added by the caller
+    @Query(value = "SELECT date_time AS dateTime, " +
+                   "SUM(CASE WHEN direction THEN amount ELSE -amount END) OVER (ORDER BY date_time, id) AS balance " +
+                   "FROM payment WHERE account_id = :accountId AND date_time BETWEEN :startDate AND :endDate " +
+                   "ORDER BY date_time, id", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BalancePointView> streamBalanceHistoryByAccountId(@Param("accountId") Long accountId,
+                                                             @Param("startDate") LocalDateTime startDate,
+                                                             @Param("endDate") LocalDateTime endDate);
 }
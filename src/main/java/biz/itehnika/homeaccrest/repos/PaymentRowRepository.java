@@ -0,0 +1,19 @@
+package biz.itehnika.homeaccrest.repos;
+
+import biz.itehnika.homeaccrest.dto.PaymentRowDTO;
+import biz.itehnika.homeaccrest.models.Customer;
+import biz.itehnika.homeaccrest.utils.PaymentCursor;
+import biz.itehnika.homeaccrest.utils.PaymentFilter;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+// Payments list queries with only the predicates the filter really needs
+public interface PaymentRowRepository {
+
+    List<PaymentRowDTO> findRowsByCustomerAndFilter(Customer customer, PaymentFilter filter);
+
+    List<PaymentRowDTO> findRowsPageByCustomerAndFilterAfter(Customer customer, PaymentFilter filter, PaymentCursor after, int limit);
+
+    Stream<PaymentRowDTO> streamRowsByCustomerAndFilter(Customer customer, PaymentFilter filter);
+}
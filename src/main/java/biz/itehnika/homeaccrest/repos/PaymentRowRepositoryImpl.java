@@ -0,0 +1,88 @@
+package biz.itehnika.homeaccrest.repos;
+
+import biz.itehnika.homeaccrest.dto.PaymentRowDTO;
+import biz.itehnika.homeaccrest.models.Customer;
+import biz.itehnika.homeaccrest.utils.PaymentCursor;
+import biz.itehnika.homeaccrest.utils.PaymentFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// JPQL is built once per shape (which groups are filtered, paged or not) and reused, so Hibernate
+// finds the parsed query in its query plan cache. Criteria queries are not cached by Hibernate 6.5
+@RequiredArgsConstructor
+public class PaymentRowRepositoryImpl implements PaymentRowRepository {
+
+    private static final int CURRENCIES = 1;
+    private static final int DIRECTIONS = 2;
+    private static final int STATUSES = 4;
+    private static final int PAGE = 8;
+
+    private static final Map<Integer, String> queries = new ConcurrentHashMap<>();
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<PaymentRowDTO> findRowsByCustomerAndFilter(Customer customer, PaymentFilter filter) {
+        if (filter.isEmpty()) {
+            return List.of();
+        }
+        return createQuery(customer, filter, 0).getResultList();
+    }
+
+    @Override
+    public List<PaymentRowDTO> findRowsPageByCustomerAndFilterAfter(Customer customer, PaymentFilter filter, PaymentCursor after, int limit) {
+        if (filter.isEmpty()) {
+            return List.of();
+        }
+        return createQuery(customer, filter, PAGE)
+            .setParameter("afterDateTime", after.getDateTime())
+            .setParameter("afterId", after.getId())
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    @Override
+    public Stream<PaymentRowDTO> streamRowsByCustomerAndFilter(Customer customer, PaymentFilter filter) {
+        if (filter.isEmpty()) {
+            return Stream.empty();
+        }
+        return createQuery(customer, filter, 0)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+            .getResultStream();
+    }
+
+    private TypedQuery<PaymentRowDTO> createQuery(Customer customer, PaymentFilter filter, int page) {
+        int shape = page;
+        if (!filter.isAllCurrencies()) shape |= CURRENCIES;
+        if (!filter.isAllDirections()) shape |= DIRECTIONS;
+        if (!filter.isAllStatuses()) shape |= STATUSES;
+
+        TypedQuery<PaymentRowDTO> query = entityManager.createQuery(queries.computeIfAbsent(shape, PaymentRowRepositoryImpl::buildQuery), PaymentRowDTO.class)
+            .setParameter("customer", customer)
+            .setParameter("startDate", filter.getStartDateTime())
+            .setParameter("endDate", filter.getEndDateTime());
+        if ((shape & CURRENCIES) != 0) query.setParameter("currencyNames", filter.getCurrencyNames());
+        if ((shape & DIRECTIONS) != 0) query.setParameter("directions", filter.getDirections());
+        if ((shape & STATUSES) != 0) query.setParameter("statuses", filter.getStatuses());
+        return query;
+    }
+
+    private static String buildQuery(int shape) {
+        StringBuilder jpql = new StringBuilder(PaymentRepository.PAYMENT_ROW_SELECT)
+            .append("where p.customer = :customer and p.dateTime between :startDate and :endDate ");
+        if ((shape & CURRENCIES) != 0) jpql.append("and p.currencyName in :currencyNames ");
+        if ((shape & DIRECTIONS) != 0) jpql.append("and p.direction in :directions ");
+        if ((shape & STATUSES) != 0) jpql.append("and p.status in :statuses ");
+        if ((shape & PAGE) != 0) {
+            jpql.append("and (p.dateTime > :afterDateTime or (p.dateTime = :afterDateTime and p.id > :afterId)) ");
+        }
+        return jpql.append(PaymentRepository.ROWS_ORDER).toString();
+    }
+}
@@ -1,25 +1,40 @@
 package biz.itehnika.homeaccrest.services;
 
 import biz.itehnika.homeaccrest.dto.AccountCreateUpdateDTO;
+import biz.itehnika.homeaccrest.dto.CurrencyBalanceDTO;
+import biz.itehnika.homeaccrest.dto.NetWorthDTO;
 import biz.itehnika.homeaccrest.models.Account;
 import biz.itehnika.homeaccrest.models.Customer;
 import biz.itehnika.homeaccrest.models.Payment;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
 import biz.itehnika.homeaccrest.repos.AccountRepository;
+import biz.itehnika.homeaccrest.repos.CustomerRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 @RequiredArgsConstructor
 @Service
 public class AccountService {
 
     private final AccountRepository accountRepository;
+    private final CustomerRepository customerRepository;
+    private final CurrencyService currencyService;
+    private final PaymentRollupService paymentRollupService;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final PaymentReferenceService paymentReferenceService;
  
     
+    // Proxy with the id only, for setting the account of new payments inside a transaction
+    @Transactional(readOnly = true)
+    public Account getReferenceById(Long id){
+        return accountRepository.getReferenceById(id);
+    }
+
     @Transactional
     public Account getById(Long id){
         return accountRepository.findById(id).orElseThrow();
@@ -36,13 +51,18 @@ public class AccountService {
     }
 
     @Transactional
-    public List<Account> getAccountsByCustomer(Customer customer){
-        return accountRepository.findAccountsByCustomer(customer);
+    public boolean existsByIdAndCustomerId(Long id, Long customerId){
+        return accountRepository.existsByIdAndCustomerId(id, customerId);
+    }
+
+    @Transactional
+    public List<Account> getAccountsByCustomerId(Long customerId){
+        return accountRepository.findAccountsByCustomerId(customerId);
     }
 
     @Transactional
-    public Account getAccountByNameAndCustomer(String name, Customer customer){
-        return accountRepository.findByNameAndCustomer(name, customer);
+    public Account getAccountByNameAndCustomerId(String name, Long customerId){
+        return accountRepository.findByNameAndCustomerId(name, customerId);
     }
 
 //    @Transactional
@@ -64,20 +84,28 @@ public class AccountService {
 //    }
 //
     
+    // Payment writes keep the balance with atomic deltas, this full recompute is for repairs only
     @Transactional
     public void updateAccountBalanceInDB(Account account){
-        Double balance = 0.0;
-        for (Payment payment : account.getPayments()){
-            if(payment.getDirection()){
-                balance += payment.getAmount();
-            }else{
-                balance -= payment.getAmount();
-            }
-        }
-        account.setBalance(balance);
+        account.setBalance(balanceCheckpointService.getBalance(account.getId()));
         accountRepository.save(account);
     }
 
+    @Transactional
+    public void updateAccountBalancesInDB(Long customerId){
+        for (Account account : getAccountsByCustomerId(customerId)){
+            updateAccountBalanceInDB(account);
+        }
+    }
+
+    // One atomic UPDATE per delta: also evicts the cached Account region, the balance is rewritten by every payment anyway
+    @Transactional
+    public void adjustBalance(Long accountId, Double delta){
+        if (delta != 0) {
+            accountRepository.addToBalance(accountId, delta);
+        }
+    }
+
     @Transactional
     public Double getTotalByCurrencyNameAndCustomer(CurrencyName currencyName, Customer customer){
         Double total = 0.0;
@@ -97,22 +125,36 @@ public class AccountService {
     }
 
 
+    // Stored balances summed per currency by the DB and converted with the in-memory rates of today
+    @Transactional(readOnly = true)
+    public NetWorthDTO getNetWorth(Long customerId, CurrencyName baseCurrencyName){
+        LocalDate today = LocalDate.now();
+        List<CurrencyBalanceDTO> currencyBalances = new ArrayList<>();
+        double total = 0.0;
+        for (AccountRepository.CurrencyBalanceView view : accountRepository.sumBalancesByCurrency(customerId)){
+            Double rate = currencyService.getExchangeRate(view.getCurrencyName(), baseCurrencyName, today);
+            if (rate == null){
+                throw new IllegalArgumentException("There are no exchange rates for " + view.getCurrencyName());
+            }
+            CurrencyBalanceDTO currencyBalance = CurrencyBalanceDTO.of(view.getCurrencyName(), view.getBalance(), rate);
+            currencyBalances.add(currencyBalance);
+            total += currencyBalance.getBaseBalance();
+        }
+        return NetWorthDTO.of(baseCurrencyName, total, currencyBalances);
+    }
+    
     @Transactional
-    public void addAccount(AccountCreateUpdateDTO accountCreateUpdateDTO, Customer customer){
-        Account account = new Account(accountCreateUpdateDTO, customer);
+    public void addAccount(AccountCreateUpdateDTO accountCreateUpdateDTO, Long customerId){
+        Account account = new Account(accountCreateUpdateDTO, customerRepository.getReferenceById(customerId));
         accountRepository.save(account);
+        paymentReferenceService.invalidate(customerId);
     }
 
     @Transactional
-    public void deleteAccounts(List<Long> ids, Customer customer) {
-        ids.forEach(id -> {
-            Optional<Account> account = accountRepository.findById(id);
-            account.ifPresent(u -> {
-                if (u.getCustomer().getId().equals(customer.getId())){
-                    accountRepository.deleteById(u.getId());
-                }
-            });
-        });
+    public void deleteAccounts(List<Long> ids, Long customerId) {
+        accountRepository.deleteAll(accountRepository.findAccountsByIdInAndCustomerId(ids, customerId));
+        paymentRollupService.rebuild(customerId);      // payments of the accounts went with them (orphanRemoval)
+        paymentReferenceService.invalidate(customerId);
     }
     
 
@@ -126,6 +168,7 @@ public class AccountService {
         accountToUpdate.setCurrencyName(accountCreateUpdateDTO.getCurrencyName());
         accountToUpdate.setBalance(accountCreateUpdateDTO.getBalance());
         accountRepository.save(accountToUpdate);
+        paymentReferenceService.invalidate(accountToUpdate.getCustomer().getId());
     }
 
 
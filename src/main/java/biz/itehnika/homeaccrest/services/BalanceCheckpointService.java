@@ -0,0 +1,82 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.models.BalanceCheckpoint;
+import biz.itehnika.homeaccrest.repos.AccountRepository;
+import biz.itehnika.homeaccrest.repos.BalanceCheckpointRepository;
+import biz.itehnika.homeaccrest.repos.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Balances as of a moment: the nearest earlier checkpoint plus the payments after it
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@EnableScheduling
+public class BalanceCheckpointService {
+
+    private final BalanceCheckpointRepository balanceCheckpointRepository;
+    private final PaymentRepository paymentRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Sum of the account payments before dateTime
+    @Transactional(readOnly = true)
+    public Double getBalanceBefore(Long accountId, LocalDateTime dateTime){
+        BalanceCheckpoint checkpoint = balanceCheckpointRepository
+            .findFirstByAccountIdAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(accountId, dateTime.toLocalDate());
+        if (checkpoint == null){
+            return paymentRepository.getSignedSumByAccountIdBefore(accountId, dateTime);
+        }
+        return checkpoint.getBalance() +
+               paymentRepository.getSignedSumByAccountIdBetween(accountId, checkpoint.getCheckpointDate().atStartOfDay(), dateTime);
+    }
+
+    // Sum of all the account payments
+    @Transactional(readOnly = true)
+    public Double getBalance(Long accountId){
+        BalanceCheckpoint checkpoint = balanceCheckpointRepository.findFirstByAccountIdOrderByCheckpointDateDesc(accountId);
+        if (checkpoint == null){
+            return accountRepository.getPaymentsSumByAccountId(accountId);
+        }
+        return checkpoint.getBalance() +
+               paymentRepository.getSignedSumByAccountIdFrom(accountId, checkpoint.getCheckpointDate().atStartOfDay());
+    }
+
+    // Called by every write of a payment dated paymentDate. The account lock is held until the write commits,
+    // so a checkpoint being created waits for it (or is created first and deleted here)
+    @Transactional
+    public void invalidateAfter(Long accountId, LocalDate paymentDate){
+        accountRepository.lockById(accountId);
+        balanceCheckpointRepository.deleteByAccountIdAndCheckpointDateAfter(accountId, paymentDate);
+    }
+
+    // Each new checkpoint starts from the previous one, so only the payments of the last month are summed.
+    // One transaction per account: the account row is locked while its payments are summed
+    @Scheduled(cron = "${accounts.checkpoints.cron:0 15 0 1 * *}")
+    public void createMonthStartCheckpoints(){
+        LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
+        int created = 0;
+        for (Long accountId : accountRepository.findAllIds()){
+            Boolean saved = transactionTemplate.execute(status -> {
+                if (accountRepository.lockById(accountId) == null
+                    || balanceCheckpointRepository.existsByAccountIdAndCheckpointDate(accountId, monthStart)){
+                    return false;       // deleted meanwhile or already done
+                }
+                balanceCheckpointRepository.save(new BalanceCheckpoint(accountId, monthStart, getBalanceBefore(accountId, monthStart.atStartOfDay())));
+                return true;
+            });
+            if (Boolean.TRUE.equals(saved)){
+                created++;
+            }
+        }
+        log.info("Balance checkpoints for {}: {} created", monthStart, created);
+    }
+}
@@ -0,0 +1,45 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.config.CacheConfig;
+import biz.itehnika.homeaccrest.dto.CacheRegionStatisticDTO;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hit rates of the Hibernate second-level and query cache regions since the start (or the last reset)
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticService {
+
+    private static final List<String> ENTITY_REGIONS =
+        List.of(CacheConfig.ACCOUNT_REGION, CacheConfig.PAYMENT_CATEGORY_REGION, CacheConfig.CURRENCY_REGION);
+    private static final List<String> QUERY_REGIONS =
+        List.of(CacheConfig.ACCOUNT_QUERY_REGION, CacheConfig.PAYMENT_CATEGORY_QUERY_REGION, CacheConfig.CURRENCY_QUERY_REGION);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public List<CacheRegionStatisticDTO> getStatistics(){
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        List<CacheRegionStatisticDTO> regionStatistics = new ArrayList<>();
+        for (String region : ENTITY_REGIONS){
+            regionStatistics.add(CacheRegionStatisticDTO.of(region, statistics.getDomainDataRegionStatistics(region)));
+        }
+        for (String region : QUERY_REGIONS){
+            // A query region is created by its first query. Asking Hibernate for the statistics of a region
+            // that doesn't exist yet makes it remember "no region" and fail on the later queries
+            boolean created = sessionFactory.getCache().getQueryResultsCacheStrictly(region) != null;
+            regionStatistics.add(CacheRegionStatisticDTO.of(region, created ? statistics.getQueryRegionStatistics(region) : null));
+        }
+        return regionStatistics;
+    }
+
+    public void resetStatistics(){
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics().clear();
+    }
+}
@@ -1,28 +1,122 @@
 package biz.itehnika.homeaccrest.services;
 
+import biz.itehnika.homeaccrest.config.CacheConfig;
+import biz.itehnika.homeaccrest.config.ExecutorConfig;
 import biz.itehnika.homeaccrest.dto.CurrencyDTO;
 import biz.itehnika.homeaccrest.models.Currency;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
 import biz.itehnika.homeaccrest.repos.CurrencyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
 
+@Slf4j
 @Service
 @EnableScheduling
 public class CurrencyService {
 
+    private static final String INSERT_RATES_SQL =
+        "INSERT INTO currency (name, name_base, buy_rate, sale_rate, date_rate) VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (date_rate, name) DO NOTHING";
 
     private final CurrencyRepository currencyRepository;
+    private final RateProvider rateProvider;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ExecutorService backfillExecutor;
+    
+    @Value("${currency.rates.backfill-days:30}")
+    private int backfillDays;
+    
+    // All rates in memory: currency -> date -> rates, exchange requests never go to the DB
+    private final Map<CurrencyName, ConcurrentSkipListMap<LocalDate, Currency>> ratesByDate = new EnumMap<>(CurrencyName.class);
+    
+    // date -> [src.ordinal()][dst.ordinal()] dst units per one src unit (NaN - no rates), rebuilt and swapped as a whole
+    private volatile NavigableMap<LocalDate, double[][]> rateMatrices = Collections.emptyNavigableMap();
 
-    public CurrencyService(CurrencyRepository currencyRepository) {
+    public CurrencyService(CurrencyRepository currencyRepository, RateProvider rateProvider, JdbcTemplate jdbcTemplate,
+                           EntityManagerFactory entityManagerFactory,
+                           @Qualifier(ExecutorConfig.RATES_BACKFILL_EXECUTOR) ExecutorService backfillExecutor) {
         this.currencyRepository = currencyRepository;
+        this.rateProvider = rateProvider;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.backfillExecutor = backfillExecutor;
+        for (CurrencyName currencyName : CurrencyName.values()){
+            ratesByDate.put(currencyName, new ConcurrentSkipListMap<>());
+        }
+    }
+    
+    @PostConstruct
+    public void loadRates(){
+        for (Currency currency : currencyRepository.findAll()){
+            putRates(currency);
+        }
+        rebuildRateMatrices();
+    }
+    
+    private void putRates(Currency currency){
+        ratesByDate.get(currency.getName()).put(currency.getDateRate(), currency);
+    }
+    
+    // One matrix per date on which any rate changed, every currency taken as of that date
+    private synchronized void rebuildRateMatrices(){
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        for (ConcurrentSkipListMap<LocalDate, Currency> rates : ratesByDate.values()){
+            dates.addAll(rates.keySet());
+        }
+        TreeMap<LocalDate, double[][]> matrices = new TreeMap<>();
+        for (LocalDate date : dates){
+            matrices.put(date, buildRateMatrix(date));
+        }
+        rateMatrices = Collections.unmodifiableNavigableMap(matrices);
+    }
+    
+    // X -> UAH = buy of X, UAH -> Y = 1 / sale of Y, X -> Y = buy of X / sale of Y
+    private double[][] buildRateMatrix(LocalDate localDate){
+        CurrencyName[] currencyNames = CurrencyName.values();
+        double[] buyRates = new double[currencyNames.length];
+        double[] saleRates = new double[currencyNames.length];
+        for (CurrencyName currencyName : currencyNames){
+            int i = currencyName.ordinal();
+            if (currencyName.equals(CurrencyName.UAH)){
+                buyRates[i] = 1.0;
+                saleRates[i] = 1.0;
+            } else {
+                Currency currency = getCurrencyByNameAsOf(currencyName, localDate);
+                buyRates[i] = currency == null ? Double.NaN : currency.getBuyRate();
+                saleRates[i] = currency == null ? Double.NaN : currency.getSaleRate();
+            }
+        }
+        double[][] matrix = new double[currencyNames.length][currencyNames.length];
+        for (int src = 0; src < currencyNames.length; src++){
+            for (int dst = 0; dst < currencyNames.length; dst++){
+                matrix[src][dst] = src == dst ? 1.0 : buyRates[src] / saleRates[dst];
+            }
+        }
+        return matrix;
     }
 
     @Transactional
@@ -31,18 +125,115 @@ public class CurrencyService {
     }
 
     @Scheduled(cron = "0 0 */2 2-22 * *")
-    @Transactional
     public void addTodayRatesIntoDB(){
         LocalDate localDate = LocalDate.now();
-        List<Currency> listTodayRates = currencyRepository.findCurrenciesByDateRate(localDate);
-        if (!listTodayRates.isEmpty()){
-            return;
+        backfillRates(localDate, localDate);
+    }
+    
+    @Scheduled(cron = "${currency.rates.backfill-cron:0 30 3 * * *}")
+    public void backfillRecentRates(){
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        backfillRates(yesterday.minusDays(backfillDays - 1L), yesterday);
+    }
+    
+    // Fetches the dates without any rates in parallel, inserts them in one batch and refreshes the in-memory rates,
+    // returns the number of inserted rows (dates the provider failed on are left for the next run).
+    // Rows that already were in the DB (inserted meanwhile by another run) are taken from the DB, not from the provider
+    public int backfillRates(LocalDate fromDate, LocalDate toDate){
+        List<LocalDate> missingDates = new ArrayList<>();
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)){
+            if (!isRatesExistInMemory(date)){
+                missingDates.add(date);
+            }
+        }
+        if (missingDates.isEmpty()){
+            return 0;
+        }
+        List<CompletableFuture<List<Currency>>> futures = new ArrayList<>();
+        for (LocalDate date : missingDates){
+            futures.add(CompletableFuture.supplyAsync(() -> getRatesFromProvider(date), backfillExecutor));
         }
-        Currency currency;
-        for (CurrencyDTO currencyDTO : getTodayRatesFromBank()){
-            currency = CurrencyDTO.fromDTO(currencyDTO);
-            currencyRepository.save(currency);
+        List<Currency> currencies = new ArrayList<>();
+        for (CompletableFuture<List<Currency>> future : futures){
+            currencies.addAll(future.join());
         }
+        if (currencies.isEmpty()){
+            log.warn("Rates backfill {} - {}: no rates received for {} missing dates", fromDate, toDate, missingDates.size());
+            return 0;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_RATES_SQL, currencies, currencies.size(), (ps, currency) -> {
+            ps.setString(1, currency.getName().name());
+            ps.setString(2, currency.getNameBase().name());
+            ps.setDouble(3, currency.getBuyRate());
+            ps.setDouble(4, currency.getSaleRate());
+            ps.setObject(5, currency.getDateRate());
+        })[0];
+        // Hibernate doesn't see JDBC inserts, cached "no rates for the date" answers would stay
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictQueryRegion(CacheConfig.CURRENCY_QUERY_REGION);
+        int inserted = 0;
+        Set<LocalDate> skippedDates = new TreeSet<>();
+        for (int i = 0; i < currencies.size(); i++){
+            if (counts[i] == 1){
+                putRates(currencies.get(i));
+                inserted++;
+            } else {
+                skippedDates.add(currencies.get(i).getDateRate());     // 0 - conflict, or no count reported by the driver
+            }
+        }
+        for (LocalDate date : skippedDates){
+            for (Currency currency : currencyRepository.findCurrenciesByDateRate(date)){
+                putRates(currency);
+            }
+        }
+        rebuildRateMatrices();
+        log.info("Rates backfill {} - {}: {} dates missing, {} rows inserted", fromDate, toDate, missingDates.size(), inserted);
+        return inserted;
+    }
+    
+    private boolean isRatesExistInMemory(LocalDate localDate){
+        for (ConcurrentSkipListMap<LocalDate, Currency> rates : ratesByDate.values()){
+            if (rates.containsKey(localDate)){
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private List<Currency> getRatesFromProvider(LocalDate localDate){
+        List<Currency> currencies = new ArrayList<>();
+        try {
+            for (CurrencyDTO currencyDTO : rateProvider.getRates(localDate)){
+                currencies.add(CurrencyDTO.fromDTO(currencyDTO, localDate));
+            }
+        } catch (RestClientException | IllegalArgumentException e) {
+            log.warn("Rates for {} are not received: {}", localDate, e.getMessage());
+            return List.of();
+        }
+        return currencies;
+    }
+    
+    // Rates of the date or, if there were none that day, of the nearest earlier date
+    public Currency getCurrencyByNameAsOf(CurrencyName currencyName, LocalDate localDate){
+        Map.Entry<LocalDate, Currency> entry = ratesByDate.get(currencyName).floorEntry(localDate);
+        return entry == null ? null : entry.getValue();
+    }
+    
+    // Date of the cross-rate matrix valid on the date and the matrix itself (must not be modified), null if there are no rates yet
+    public Map.Entry<LocalDate, double[][]> getRateMatrixAsOf(LocalDate localDate){
+        return rateMatrices.floorEntry(localDate);
+    }
+    
+    // How many dst units one src unit buys (bank buys src and sells dst via UAH), null if there are no rates yet
+    public Double getExchangeRate(CurrencyName srcCurrencyName, CurrencyName dstCurrencyName, LocalDate localDate){
+        if (srcCurrencyName.equals(dstCurrencyName)){
+            return 1.0;
+        }
+        Map.Entry<LocalDate, double[][]> entry = rateMatrices.floorEntry(localDate);
+        if (entry == null){
+            return null;
+        }
+        double rate = entry.getValue()[srcCurrencyName.ordinal()][dstCurrencyName.ordinal()];
+        return Double.isNaN(rate) ? null : rate;
     }
 
     @Transactional
@@ -55,11 +246,4 @@ public class CurrencyService {
         return currencyRepository.findCurrencyByNameAndDateRate(currencyName, LocalDate.now());
     }
 
-
-    public static List<CurrencyDTO> getTodayRatesFromBank(){
-        final RestTemplate restTemplate = new RestTemplate();
-        CurrencyDTO[] ratesArray = restTemplate.getForObject("https://api.privatbank.ua/p24api/pubinfo?exchange&json&coursid=11", CurrencyDTO[].class);
-        assert ratesArray != null;  // check API PrivatBank is OK
-        return Arrays.asList(ratesArray);
-    }
 }
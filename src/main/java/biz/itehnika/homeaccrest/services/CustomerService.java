@@ -50,6 +50,12 @@ public class CustomerService{
         return customerRepository.findById(id).orElseThrow();
     }
     
+    // Proxy with the id only, for setting the owner of new entities inside a transaction
+    @Transactional(readOnly = true)
+    public Customer getReferenceById(Long id) {
+        return customerRepository.getReferenceById(id);
+    }
+    
     @Transactional(readOnly = true)
     public Customer findByEmail(String email) {
         return customerRepository.findCustomerByEmail(email);
@@ -65,7 +71,7 @@ public class CustomerService{
         customer.setLastName(customerRegistrationDTO.getLastName());
         customer.setFilters(true, true, true, true, true, true, true);
         customerRepository.save(customer);
-        paymentCategoryService.initPaymentCategoriesForCustomer(customer);
+        paymentCategoryService.initPaymentCategoriesForCustomer(customer.getId());
         
     }
     
@@ -0,0 +1,34 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.dto.CurrencyDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+// Offline stub for tests and local runs: the same rates (JSON array in the format of the PrivatBank API) for every date
+@Component
+@ConditionalOnProperty(name = "currency.rates.provider", havingValue = "file")
+public class FileRateProvider implements RateProvider {
+    
+    private final List<CurrencyDTO> rates;
+    
+    public FileRateProvider(ObjectMapper objectMapper,
+                            @Value("${currency.rates.file:classpath:rates.json}") Resource ratesFile) throws IOException {
+        try (InputStream inputStream = ratesFile.getInputStream()) {
+            this.rates = List.copyOf(Arrays.asList(objectMapper.readValue(inputStream, CurrencyDTO[].class)));
+        }
+    }
+    
+    @Override
+    public List<CurrencyDTO> getRates(LocalDate localDate) {
+        return rates;
+    }
+}
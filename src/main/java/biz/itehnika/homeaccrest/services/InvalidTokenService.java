@@ -3,42 +3,139 @@ package biz.itehnika.homeaccrest.services;
 import biz.itehnika.homeaccrest.dto.InvalidTokenDTO;
 import biz.itehnika.homeaccrest.models.InvalidToken;
 import biz.itehnika.homeaccrest.repos.InvalidTokenRepository;
+import biz.itehnika.homeaccrest.utils.BloomFilter;
+import biz.itehnika.homeaccrest.utils.JwtTokenUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @EnableScheduling
 public class InvalidTokenService {
     private final InvalidTokenRepository invalidTokenRepository;
-
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${jwt.blacklist.purge-batch-size:1000}")
+    private int purgeBatchSize;
+    
+    @Value("${jwt.blacklist.expected-tokens:100000}")
+    private long expectedTokens;
+    
+    // Revoked token hashes: the Bloom filter answers "surely not revoked" for almost every request,
+    // the expiring set confirms positives, only the rest (false positives, evicted entries) go to the DB
+    private volatile BloomFilter revokedFilter;
+    private Cache<String, LocalDateTime> revokedTokens;
+    // A token revoked while the filter is rebuilt must reach the new filter, not only the one being replaced
+    private final Object filterLock = new Object();
+    
+    private Counter purgedCounter;
+    private Timer purgeTimer;
+    
+    @PostConstruct
+    public void init() {
+        purgedCounter = Counter.builder("invalid_tokens.purged")
+            .description("Expired invalid tokens deleted by the purge job")
+            .register(meterRegistry);
+        purgeTimer = Timer.builder("invalid_tokens.purge.time")
+            .description("Duration of the purge job")
+            .register(meterRegistry);
+        revokedTokens = Caffeine.newBuilder()
+            .maximumSize(expectedTokens)
+            .expireAfter(new Expiry<String, LocalDateTime>() {
+                @Override
+                public long expireAfterCreate(String tokenHash, LocalDateTime validDateTime, long currentTime) {
+                    return Math.max(0, Duration.between(LocalDateTime.now(), validDateTime).toNanos());
+                }
+                @Override
+                public long expireAfterUpdate(String tokenHash, LocalDateTime validDateTime, long currentTime, long currentDuration) {
+                    return expireAfterCreate(tokenHash, validDateTime, currentTime);
+                }
+                @Override
+                public long expireAfterRead(String tokenHash, LocalDateTime validDateTime, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+        loadBlackList();
+    }
+    
+    // Rebuilds the filter from the table, expired tokens drop out of it
+    public void loadBlackList(){
+        BloomFilter filter = new BloomFilter(expectedTokens, 0.01);
+        for (InvalidToken invalidToken : invalidTokenRepository.findByValidDateTimeAfter(LocalDateTime.now())){
+            if (invalidToken.getToken() == null){
+                continue;       // logouts without a token were saved before they were skipped
+            }
+            String tokenHash = JwtTokenUtils.hashToken(invalidToken.getToken());
+            filter.put(tokenHash);
+            revokedTokens.put(tokenHash, invalidToken.getValidDateTime());
+        }
+        synchronized (filterLock) {
+            revokedTokens.asMap().keySet().forEach(filter::put);     // revoked while loading
+            revokedFilter = filter;
+        }
+    }
     
-    @Transactional(readOnly = true)
     public boolean existsByToken(String token){
-        return invalidTokenRepository.existsInvalidTokenByToken(token);
+        String tokenHash = JwtTokenUtils.hashToken(token);
+        if (!revokedFilter.mightContain(tokenHash)){
+            return false;
+        }
+        if (revokedTokens.getIfPresent(tokenHash) != null){
+            return true;
+        }
+        InvalidToken invalidToken = invalidTokenRepository.findFirstByToken(token);
+        if (invalidToken == null){
+            return false;
+        }
+        revokedTokens.put(tokenHash, invalidToken.getValidDateTime());
+        return true;
     }
     
     @Transactional
     public void addToBlackList(InvalidTokenDTO invalidTokenDTO){
+        if (invalidTokenDTO.getToken() == null){
+            return;
+        }
         invalidTokenRepository.save(new InvalidToken(null, invalidTokenDTO.getToken(), invalidTokenDTO.getValidDateTime()));
+        String tokenHash = JwtTokenUtils.hashToken(invalidTokenDTO.getToken());
+        synchronized (filterLock) {
+            revokedTokens.put(tokenHash, invalidTokenDTO.getValidDateTime());
+            revokedFilter.put(tokenHash);
+        }
     }
     
-    @Scheduled(cron = "0 0 * * * *")
-    @Transactional
+    // Expired tokens are deleted in chunks, each chunk commits on its own
+    @Scheduled(cron = "${jwt.blacklist.purge-cron:0 0 * * * *}")
     public void cleanTokensWithInvalidDate(){
-        List<InvalidToken> invalidTokens = invalidTokenRepository.findAll();
-        for (InvalidToken invalidToken : invalidTokens){
-            LocalDateTime validDateTime = invalidToken.getValidDateTime();
-            if (validDateTime.isAfter(LocalDateTime.now())){
-                invalidTokenRepository.delete(invalidToken);
-            }
-        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = invalidTokenRepository.deleteValidBeforeBatch(now, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        sample.stop(purgeTimer);
+        purgedCounter.increment(purged);
+        log.debug("Purged {} expired invalid tokens", purged);
+        loadBlackList();
     }
     
 }
@@ -11,7 +11,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -19,15 +18,21 @@ public class PaymentCategoryService {
 
     private final PaymentCategoryRepository paymentCategoryRepository;
     private final CustomerRepository customerRepository;
+    private final PaymentReferenceService paymentReferenceService;
     
     @Transactional
-    public PaymentCategory getByNameAndCustomer(String name, Customer customer) {
-        return paymentCategoryRepository.findPaymentCategoryByNameAndCustomer(name, customer);
+    public PaymentCategory getByNameAndCustomerId(String name, Long customerId) {
+        return paymentCategoryRepository.findPaymentCategoryByNameAndCustomerId(name, customerId);
     }
 
     @Transactional(readOnly = true)
-    public List<PaymentCategory> getPaymentCategoriesByCustomer(Customer customer){
-        return paymentCategoryRepository.findPaymentCategoriesByCustomer(customer);
+    public List<PaymentCategory> getPaymentCategoriesByCustomerId(Long customerId){
+        return paymentCategoryRepository.findPaymentCategoriesByCustomerId(customerId);
+    }
+
+    @Transactional
+    public boolean existsByIdAndCustomerId(Long id, Long customerId){
+        return paymentCategoryRepository.existsByIdAndCustomerId(id, customerId);
     }
 
     @Transactional
@@ -35,55 +40,48 @@ public class PaymentCategoryService {
         return paymentCategoryRepository.existsById(id);
     }
     
+    // Proxy with the id only, for setting the category of new payments inside a transaction
+    @Transactional(readOnly = true)
+    public PaymentCategory getReferenceById(Long id){
+        return paymentCategoryRepository.getReferenceById(id);
+    }
+
     @Transactional
     public PaymentCategory getById(Long id){
         return paymentCategoryRepository.findById(id).orElseThrow();
     }
 
     @Transactional
-    public void addPaymentCategory(PaymentCategoryCreateUpdateDTO categoryCreateUpdateDTO, Customer customer){
+    public void addPaymentCategory(PaymentCategoryCreateUpdateDTO categoryCreateUpdateDTO, Long customerId){
         PaymentCategory paymentCategory = new PaymentCategory(categoryCreateUpdateDTO.getName(),
                                                               categoryCreateUpdateDTO.getDescription(),
-                                                              customer);
+                                                              customerRepository.getReferenceById(customerId));
         paymentCategoryRepository.save(paymentCategory);
+        paymentReferenceService.invalidate(customerId);
     }
     
     @Transactional
     public void addPaymentCategory(String name, String description, Customer customer){
         PaymentCategory paymentCategory = new PaymentCategory(name, description, customer);
         paymentCategoryRepository.save(paymentCategory);
+        paymentReferenceService.invalidate(customer.getId());
     }
 
     @Transactional
-    public void initPaymentCategoriesForCustomer(Customer customer){
+    public void initPaymentCategoriesForCustomer(Long customerId){
         Customer customerAdmin = customerRepository.findCustomerByEmail(AppConfig.ADMIN_EMAIL);
 
-        List<PaymentCategory> paymentCategories = getPaymentCategoriesByCustomer(customerAdmin);
+        List<PaymentCategory> paymentCategories = getPaymentCategoriesByCustomerId(customerAdmin.getId());
         for (PaymentCategory category : paymentCategories){
-            addPaymentCategory(PaymentCategoryCreateUpdateDTO.of(category.getName(), category.getDescription()), customer);
+            addPaymentCategory(PaymentCategoryCreateUpdateDTO.of(category.getName(), category.getDescription()), customerId);
         }
     }
     
+    // Only after their payments were deleted by PaymentService.deletePaymentCategories
     @Transactional
-    public void deletePaymentCategory(Long id, Customer customer) {
-            Optional<PaymentCategory> paymentCategory = paymentCategoryRepository.findById(id);
-            paymentCategory.ifPresent(u -> {
-                if (u.getCustomer().getId().equals(customer.getId())){
-                    paymentCategoryRepository.deleteById(u.getId());
-                }
-            });
-    }
-
-    @Transactional
-    public void deletePaymentCategories(List<Long> ids, Customer customer) {
-        ids.forEach(id -> {
-            Optional<PaymentCategory> paymentCategory = paymentCategoryRepository.findById(id);
-            paymentCategory.ifPresent(u -> {
-                if (u.getCustomer().getId().equals(customer.getId())){
-                    paymentCategoryRepository.deleteById(u.getId());
-                }
-            });
-        });
+    void deletePaymentCategories(List<Long> ids, Long customerId) {
+        paymentCategoryRepository.deleteAll(paymentCategoryRepository.findPaymentCategoriesByIdInAndCustomerId(ids, customerId));
+        paymentReferenceService.invalidate(customerId);
     }
 
     @Transactional
@@ -93,6 +91,7 @@ public class PaymentCategoryService {
         categoryToUpdate.setName(categoryCreateUpdateDTO.getName());
         categoryToUpdate.setDescription(categoryCreateUpdateDTO.getDescription());
         paymentCategoryRepository.save(categoryToUpdate);
+        paymentReferenceService.invalidate(categoryToUpdate.getCustomer().getId());
     }
     
     @Transactional
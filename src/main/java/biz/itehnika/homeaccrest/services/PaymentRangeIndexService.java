@@ -0,0 +1,100 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.models.PaymentDailyRollup;
+import biz.itehnika.homeaccrest.repos.PaymentDailyRollupRepository;
+import biz.itehnika.homeaccrest.utils.PaymentRangeIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Range sums of payments per customer, built from the daily rollups on first use and dropped by every committed payment write
+@Service
+public class PaymentRangeIndexService {
+
+    private static final int STAMP_STRIPES = 1024;
+
+    private final PaymentDailyRollupRepository paymentDailyRollupRepository;
+
+    private final Cache<Long, PaymentRangeIndex> indexes;
+
+    // Committed writes per stripe of customers: an index is cached only if the stamp of its customer didn't change while it was built
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STAMP_STRIPES);
+
+    public PaymentRangeIndexService(PaymentDailyRollupRepository paymentDailyRollupRepository,
+                                    @Value("${payments.range-index.max-bytes:67108864}") long maxBytes,
+                                    @Value("${payments.range-index.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.paymentDailyRollupRepository = paymentDailyRollupRepository;
+        this.indexes = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Long customerId, PaymentRangeIndex index) -> index.weightBytes())
+            .expireAfterAccess(expireAfterAccess)
+            .build();
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentRangeIndex getIndex(Long customerId) {
+        PaymentRangeIndex index = indexes.getIfPresent(customerId);
+        if (index != null) {
+            return index;
+        }
+        int stripe = stripe(customerId);
+        long stamp = writeStamps.get(stripe);
+        PaymentRangeIndex built = build(customerId);
+        indexes.asMap().compute(customerId, (id, cached) -> cached != null ? cached :
+            writeStamps.get(stripe) == stamp ? built : null);
+        return built;
+    }
+
+    // The stamp moves before the index is dropped, so a build that read the rollups before the commit is not cached after it
+    public void invalidateAfterCommit(Long customerId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                writeStamps.incrementAndGet(stripe(customerId));
+                indexes.invalidate(customerId);
+            }
+        });
+    }
+
+    public void invalidateAllAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (int stripe = 0; stripe < STAMP_STRIPES; stripe++) {
+                    writeStamps.incrementAndGet(stripe);
+                }
+                indexes.invalidateAll();
+            }
+        });
+    }
+
+    private static int stripe(Long customerId) {
+        return Long.hashCode(customerId) & (STAMP_STRIPES - 1);
+    }
+
+    private PaymentRangeIndex build(Long customerId) {
+        List<PaymentDailyRollup> rollups = paymentDailyRollupRepository.findByCustomerId(customerId);
+        LocalDate today = LocalDate.now();
+        LocalDate firstDate = today;
+        LocalDate lastDate = today;
+        for (PaymentDailyRollup rollup : rollups) {
+            firstDate = rollup.getPaymentDate().isBefore(firstDate) ? rollup.getPaymentDate() : firstDate;
+            lastDate = rollup.getPaymentDate().isAfter(lastDate) ? rollup.getPaymentDate() : lastDate;
+        }
+        PaymentRangeIndex index = new PaymentRangeIndex(firstDate, lastDate);
+        for (PaymentDailyRollup rollup : rollups) {
+            index.add(rollup.getPaymentDate(), rollup.getCurrencyName(), rollup.getDirection(), rollup.getStatus(),
+                      PaymentRangeIndex.toCents(rollup.getAmount()));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,73 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.repos.AccountRepository;
+import biz.itehnika.homeaccrest.repos.PaymentCategoryRepository;
+import biz.itehnika.homeaccrest.utils.CustomerReferences;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Account and payment category names of a customer resolved to ids without a query per payment.
+// Invalidated by every change of the accounts and categories of the customer
+@Service
+public class PaymentReferenceService {
+
+    private final AccountRepository accountRepository;
+    private final PaymentCategoryRepository paymentCategoryRepository;
+
+    private final Cache<Long, CustomerReferences> references;
+
+    // Completed changes of any customer: references read while a change was completing are not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PaymentReferenceService(AccountRepository accountRepository, PaymentCategoryRepository paymentCategoryRepository,
+                                   @Value("${payments.references.max-customers:10000}") long maxCustomers,
+                                   @Value("${payments.references.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.accountRepository = accountRepository;
+        this.paymentCategoryRepository = paymentCategoryRepository;
+        this.references = Caffeine.newBuilder()
+            .maximumSize(maxCustomers)
+            .expireAfterAccess(expireAfterAccess)
+            .build();
+    }
+
+    @Transactional(readOnly = true)
+    public CustomerReferences getReferences(Long customerId) {
+        CustomerReferences cached = references.getIfPresent(customerId);
+        if (cached != null) {
+            return cached;
+        }
+        long invalidationsBefore = invalidations.get();
+        CustomerReferences loaded = new CustomerReferences(
+            accountRepository.findReferencesByCustomerId(customerId).stream()
+                .map(view -> new CustomerReferences.AccountReference(view.getId(), view.getName(), view.getCurrencyName()))
+                .toList(),
+            paymentCategoryRepository.findReferencesByCustomerId(customerId).stream()
+                .map(view -> new CustomerReferences.PaymentCategoryReference(view.getId(), view.getName()))
+                .toList());
+        references.asMap().compute(customerId, (id, current) -> current != null ? current :
+            invalidations.get() == invalidationsBefore ? loaded : null);
+        return loaded;
+    }
+
+    // Dropped now for the changing transaction itself and once more when it completes, for the others
+    public void invalidate(Long customerId) {
+        references.invalidate(customerId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidations.incrementAndGet();
+                    references.invalidate(customerId);
+                }
+            });
+        }
+    }
+}
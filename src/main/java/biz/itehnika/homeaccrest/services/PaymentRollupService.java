@@ -0,0 +1,105 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.dto.PaymentSummaryDTO;
+import biz.itehnika.homeaccrest.dto.PaymentSummarySeriesDTO;
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import biz.itehnika.homeaccrest.repos.PaymentDailyRollupRepository;
+import biz.itehnika.homeaccrest.utils.PaymentRollupDeltas;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentRollupService {
+
+    private final PaymentDailyRollupRepository paymentDailyRollupRepository;
+    private final PaymentRangeIndexService paymentRangeIndexService;
+
+    // Runs in the transaction of the payment write, so rollups and payments commit or roll back together
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Long customerId, PaymentRollupDeltas deltas){
+        deltas.forEach((key, delta) -> paymentDailyRollupRepository.upsert(customerId,
+                                                                          key.paymentDate(),
+                                                                          key.currencyName().name(),
+                                                                          key.paymentCategoryId(),
+                                                                          key.direction(),
+                                                                          key.status(),
+                                                                          delta.amount(),
+                                                                          delta.paymentsCount()));
+        if (deltas.hasRemovals()){
+            paymentDailyRollupRepository.deleteEmptyByCustomerId(customerId);
+        }
+        paymentRangeIndexService.invalidateAfterCommit(customerId);
+    }
+
+    // After payments were removed by cascades (account or category deletion)
+    @Transactional
+    public void rebuild(Long customerId){
+        paymentDailyRollupRepository.deleteAllByCustomerId(customerId);
+        paymentDailyRollupRepository.insertFromPaymentsByCustomerId(customerId);
+        paymentRangeIndexService.invalidateAfterCommit(customerId);
+    }
+
+    @Transactional
+    public int rebuildAll(){
+        paymentDailyRollupRepository.deleteAllRollups();
+        int rows = paymentDailyRollupRepository.insertFromAllPayments();
+        paymentRangeIndexService.invalidateAllAfterCommit();
+        log.info("Payment daily rollups rebuilt: {} rows", rows);
+        return rows;
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentSummaryDTO getSummary(Long customerId, List<CurrencyName> currencyNames, List<Boolean> directions,
+                                        List<Boolean> statuses, LocalDate startDate, LocalDate endDate,
+                                        String groupBy, boolean byCategory){
+        if (currencyNames.isEmpty() || directions.isEmpty() || statuses.isEmpty()){
+            return PaymentSummaryDTO.of(groupBy, List.of(), List.of());
+        }
+        List<PaymentDailyRollupRepository.SummaryRowView> rows = paymentDailyRollupRepository.getSummaryByCustomerId(
+                                                    customerId,
+                                                    currencyNames.stream().map(CurrencyName::name).toList(),
+                                                    directions,
+                                                    statuses,
+                                                    startDate,
+                                                    endDate,
+                                                    groupBy,
+                                                    byCategory);
+        Map<LocalDate, Integer> bucketIndexes = new TreeMap<>();
+        for (PaymentDailyRollupRepository.SummaryRowView row : rows){
+            bucketIndexes.put(row.getBucket(), 0);
+        }
+        List<LocalDate> buckets = new ArrayList<>(bucketIndexes.keySet());
+        for (int i = 0; i < buckets.size(); i++){
+            bucketIndexes.put(buckets.get(i), i);
+        }
+        // rows come ordered by currency and category, so each series is filled by consecutive rows
+        List<PaymentSummarySeriesDTO> series = new ArrayList<>();
+        PaymentSummarySeriesDTO current = null;
+        for (PaymentDailyRollupRepository.SummaryRowView row : rows){
+            CurrencyName currencyName = CurrencyName.valueOf(row.getCurrencyName());
+            if (current == null || current.getCurrencyName() != currencyName ||
+                !Objects.equals(current.getPaymentCategoryName(), row.getCategoryName())){
+                current = PaymentSummarySeriesDTO.of(currencyName, row.getCategoryName(), buckets.size());
+                series.add(current);
+            }
+            int i = bucketIndexes.get(row.getBucket());
+            current.getIncome()[i] = row.getIncome();
+            current.getWaste()[i] = row.getWaste();
+            current.getCount()[i] = row.getPaymentsCount();
+        }
+        return PaymentSummaryDTO.of(groupBy, buckets, series);
+    }
+}
@@ -1,21 +1,40 @@
 package biz.itehnika.homeaccrest.services;
 
+import biz.itehnika.homeaccrest.dto.BalancePointDTO;
+import biz.itehnika.homeaccrest.dto.CurrencyStatisticDTO;
 import biz.itehnika.homeaccrest.dto.CustomerFiltersDTO;
 import biz.itehnika.homeaccrest.dto.CustomerPeriodDTO;
 import biz.itehnika.homeaccrest.dto.PaymentCreateUpdateDTO;
+import biz.itehnika.homeaccrest.dto.PaymentDTO;
+import biz.itehnika.homeaccrest.dto.PaymentListDTO;
+import biz.itehnika.homeaccrest.dto.PaymentPageDTO;
+import biz.itehnika.homeaccrest.dto.PaymentRowDTO;
+import biz.itehnika.homeaccrest.dto.PaymentSummaryDTO;
 import biz.itehnika.homeaccrest.models.*;
 import biz.itehnika.homeaccrest.models.enums.CurrencyName;
 import biz.itehnika.homeaccrest.repos.AccountRepository;
 import biz.itehnika.homeaccrest.repos.PaymentRepository;
+import biz.itehnika.homeaccrest.utils.CustomerReferences;
+import biz.itehnika.homeaccrest.utils.PaymentCursor;
+import biz.itehnika.homeaccrest.utils.PaymentFilter;
+import biz.itehnika.homeaccrest.utils.PaymentRangeIndex;
+import biz.itehnika.homeaccrest.utils.PaymentRollupDeltas;
+import com.fasterxml.jackson.databind.MappingIterator;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +47,14 @@ public class PaymentService {
     final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
     final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
     private final AccountService accountService;
+    private final PaymentRollupService paymentRollupService;
+    private final PaymentRangeIndexService paymentRangeIndexService;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final PaymentReferenceService paymentReferenceService;
+    private final EntityManager entityManager;
+    
+    @Value("${payments.import.batch-size:50}")
+    private int importBatchSize;
     
     @Transactional(readOnly = true)
     public Payment getById(Long id){
@@ -38,108 +65,271 @@ public class PaymentService {
     public boolean existsById(Long id){
         return paymentRepository.existsById(id);
     }
+    
+    @Transactional(readOnly = true)
+    public boolean existsByIdAndCustomerId(Long id, Long customerId){
+        return paymentRepository.existsByIdAndCustomer_Id(id, customerId);
+    }
 
    
     @Transactional(readOnly = true)
-    public List<Payment> getAllPaymentsByCurrencyName(CurrencyName currencyName, Customer customer){
-        return paymentRepository.findByCustomerAndCurrencyName(customer, currencyName);
+    public List<PaymentRowDTO> getAllPaymentsByCurrencyName(CurrencyName currencyName, Customer customer){
+        return paymentRepository.findRowsByCustomerAndCurrencyName(customer, currencyName);
     }
 
     @Transactional(readOnly = true)
-    public List<Payment> getAllPaymentsByPeriod(CustomerPeriodDTO customerPeriodDTO, Customer customer){
-        return paymentRepository.findByCustomerAndDateTimeBetweenOrderByDateTime(customer,
+    public List<PaymentRowDTO> getAllPaymentsByPeriod(CustomerPeriodDTO customerPeriodDTO, Customer customer){
+        return paymentRepository.findRowsByCustomerAndDateTimeBetween(customer,
                                               LocalDateTime.of(LocalDate.parse(customerPeriodDTO.getStartDate(), dateFormatter), LocalTime.MIN),
                                               LocalDateTime.of(LocalDate.parse(customerPeriodDTO.getEndDate(), dateFormatter), LocalTime.MAX));
     }
 
     @Transactional(readOnly = true)
-    public List<Payment> getPaymentsByCustomerAndAllFilters(Customer customer){
+    public List<PaymentRowDTO> getPaymentsByCustomerAndAllFilters(Customer customer){
+        return paymentRepository.findRowsByCustomerAndFilter(customer, getPaymentFilter(customer));
+    }
+
+    // The on-screen sums are added up while the rows are converted, the filter query runs once
+    @Transactional(readOnly = true)
+    public PaymentListDTO getPaymentsWithTotalsByCustomerAndAllFilters(Customer customer){
+        List<PaymentRowDTO> paymentRows = getPaymentsByCustomerAndAllFilters(customer);
+        List<PaymentDTO> payments = new ArrayList<>(paymentRows.size());
+        long[] sumsCents = new long[CurrencyName.values().length];
+        for (PaymentRowDTO paymentRow : paymentRows){
+            payments.add(PaymentDTO.of(paymentRow));
+            sumsCents[paymentRow.getCurrencyName().ordinal()] += PaymentRangeIndex.toCents(paymentRow.getSignedAmount());
+        }
+        Map<CurrencyName, Double> onScreenSums = new EnumMap<>(CurrencyName.class);
+        for (CurrencyName currencyName : CurrencyName.values()){
+            onScreenSums.put(currencyName, sumsCents[currencyName.ordinal()] / 100.0);
+        }
+        return PaymentListDTO.of(payments, onScreenSums);
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentPageDTO getPaymentsPageByCustomerAndAllFilters(Customer customer, String cursor, int limit){
+        PaymentFilter paymentFilter = getPaymentFilter(customer);
+        PaymentCursor after = cursor == null ? new PaymentCursor(paymentFilter.getStartDateTime(), 0L) : PaymentCursor.decode(cursor);
+
+        // one extra row tells if there is a next page
+        List<PaymentRowDTO> payments = paymentRepository.findRowsPageByCustomerAndFilterAfter(customer, paymentFilter, after, limit + 1);
+        String nextCursor = null;
+        if (payments.size() > limit){
+            payments = payments.subList(0, limit);
+            nextCursor = PaymentCursor.of(payments.get(limit - 1)).encode();
+        }
+        return PaymentPageDTO.of(PaymentDTO.listOfRows(payments), nextCursor);
+    }
+
+    // Rows are handed to the consumer one by one, so the heap doesn't grow with the period length
+    @Transactional(readOnly = true)
+    public void streamPaymentsByCustomerAndAllFilters(Customer customer, Consumer<PaymentDTO> consumer){
+        try (Stream<PaymentRowDTO> payments = paymentRepository.streamRowsByCustomerAndFilter(customer, getPaymentFilter(customer))) {
+            payments.forEach(paymentRow -> consumer.accept(PaymentDTO.of(paymentRow)));
+        }
+    }
+
+    // Opening balance at startDate, then the balance after every payment of the period
+    @Transactional(readOnly = true)
+    public void streamBalanceHistory(Long accountId, LocalDateTime startDate, LocalDateTime endDate, Consumer<BalancePointDTO> consumer){
+        double openingBalance = balanceCheckpointService.getBalanceBefore(accountId, startDate);
+        consumer.accept(BalancePointDTO.of(startDate, openingBalance));
+        try (Stream<PaymentRepository.BalancePointView> points = paymentRepository.streamBalanceHistoryByAccountId(accountId, startDate, endDate)) {
+            points.forEach(point -> consumer.accept(BalancePointDTO.of(point.getDateTime(), openingBalance + point.getBalance())));
+        }
+    }
+
+    private PaymentFilter getPaymentFilter(Customer customer){
         CustomerFiltersDTO customerFiltersDTO = customerService.getFilters(customer);
         CustomerPeriodDTO customerPeriodDTO = customerService.getActivePeriod(customer);
+        return new PaymentFilter(getCurrencyNames(customerFiltersDTO),
+                                 getDirections(customerFiltersDTO),
+                                 getStatuses(customerFiltersDTO),
+                                 getStartDateTime(customerPeriodDTO),
+                                 getEndDateTime(customerPeriodDTO));
+    }
+
+    private List<CurrencyName> getCurrencyNames(CustomerFiltersDTO customerFiltersDTO){
         List<CurrencyName> currencyNames = new ArrayList<>();
-        List<Boolean> directions = new ArrayList<>();
-        List<Boolean> statuses = new ArrayList<>();
         if (customerFiltersDTO.getIsUAH()) currencyNames.add(CurrencyName.UAH); //TODO Rewrite
         if (customerFiltersDTO.getIsEUR()) currencyNames.add(CurrencyName.EUR);
         if (customerFiltersDTO.getIsUSD()) currencyNames.add(CurrencyName.USD);
+        return currencyNames;
+    }
+
+    private List<Boolean> getDirections(CustomerFiltersDTO customerFiltersDTO){
+        List<Boolean> directions = new ArrayList<>();
         if (customerFiltersDTO.getIsIN()) directions.add(true);
         if (customerFiltersDTO.getIsOUT()) directions.add(false);
+        return directions;
+    }
+
+    private List<Boolean> getStatuses(CustomerFiltersDTO customerFiltersDTO){
+        List<Boolean> statuses = new ArrayList<>();
         if (customerFiltersDTO.getIsCompleted()) statuses.add(true);
         if (customerFiltersDTO.getIsScheduled()) statuses.add(false);
-        LocalDateTime startDateTime = LocalDateTime.of(LocalDate.parse(customerPeriodDTO.getStartDate(), dateFormatter), LocalTime.MIN);
-        LocalDateTime endDateTime = LocalDateTime.of(LocalDate.parse(customerPeriodDTO.getEndDate(), dateFormatter), LocalTime.MAX);
+        return statuses;
+    }
+
+    private LocalDateTime getStartDateTime(CustomerPeriodDTO customerPeriodDTO){
+        return LocalDateTime.of(LocalDate.parse(customerPeriodDTO.getStartDate(), dateFormatter), LocalTime.MIN);
+    }
 
-        return paymentRepository.findByCustomerAndCurrencyNameInAndDirectionInAndStatusInAndDateTimeBetweenOrderByDateTimeAsc(
-                                                    customer,
-                                                    currencyNames,
-                                                    directions,
-                                                    statuses,
-                                                    startDateTime,
-                                                    endDateTime);
+    private LocalDateTime getEndDateTime(CustomerPeriodDTO customerPeriodDTO){
+        return LocalDateTime.of(LocalDate.parse(customerPeriodDTO.getEndDate(), dateFormatter), LocalTime.MAX);
     }
 
     @Transactional
-    public void addPayment(PaymentCreateUpdateDTO paymentCreateUpdateDTO, Customer customer){
-        Account account = accountService.getAccountByNameAndCustomer(paymentCreateUpdateDTO.getAccountName(), customer);
+    public void addPayment(PaymentCreateUpdateDTO paymentCreateUpdateDTO, Long customerId){
+        CustomerReferences references = paymentReferenceService.getReferences(customerId);
+        CustomerReferences.AccountReference account = references.findAccount(paymentCreateUpdateDTO.getAccountId(),
+                                                                             paymentCreateUpdateDTO.getAccountName());
+        Long paymentCategoryId = references.findPaymentCategoryId(paymentCreateUpdateDTO.getPaymentCategoryId(),
+                                                                  paymentCreateUpdateDTO.getPaymentCategoryName());
         Payment payment = new Payment(
                         LocalDateTime.parse(paymentCreateUpdateDTO.getDateTime(), dateTimeFormatter),
                         paymentCreateUpdateDTO.getDirection(),
                         paymentCreateUpdateDTO.getStatus(),
                         paymentCreateUpdateDTO.getAmount(),
-                        accountService.getAccountByNameAndCustomer(paymentCreateUpdateDTO.getAccountName(), customer)
-                                      .getCurrencyName(),
+                        account.currencyName(),
                         paymentCreateUpdateDTO.getDescription(),
-                        paymentCategoryService.getByNameAndCustomer(paymentCreateUpdateDTO.getPaymentCategoryName(), customer),
-                        account,
-                        customer);
+                        paymentCategoryService.getReferenceById(paymentCategoryId),
+                        accountService.getReferenceById(account.id()),
+                        customerService.getReferenceById(customerId));
         paymentRepository.save(payment);
-        accountService.updateAccountBalanceInDB(account);
+        accountService.adjustBalance(account.id(), payment.getSignedAmount());
+        balanceCheckpointService.invalidateAfter(account.id(), payment.getDateTime().toLocalDate());
+        PaymentRollupDeltas rollupDeltas = new PaymentRollupDeltas();
+        rollupDeltas.add(payment);
+        paymentRollupService.apply(customerId, rollupDeltas);
+    }
+
+    // All or nothing: a wrong row rolls back the whole import
+    @Transactional
+    public int importPayments(MappingIterator<PaymentCreateUpdateDTO> rows, Long customerId) throws IOException {
+        Customer customer = customerService.getReferenceById(customerId);
+        CustomerReferences references = paymentReferenceService.getReferences(customerId);
+        Map<Long, Double> balanceDeltas = new HashMap<>();
+        Map<Long, LocalDate> earliestDates = new HashMap<>();
+        PaymentRollupDeltas rollupDeltas = new PaymentRollupDeltas();
+        int count = 0;
+        while (rows.hasNextValue()){
+            PaymentCreateUpdateDTO row = rows.nextValue();
+            count++;
+            CustomerReferences.AccountReference account = references.findAccount(row.getAccountId(), row.getAccountName());
+            Long paymentCategoryId = references.findPaymentCategoryId(row.getPaymentCategoryId(), row.getPaymentCategoryName());
+            if (account == null){
+                throw new IllegalArgumentException("Row " + count + ": Account with specified ID or name does not exist");
+            }
+            if (paymentCategoryId == null){
+                throw new IllegalArgumentException("Row " + count + ": Category with specified ID or name does not exist");
+            }
+            if (row.getDateTime() == null || row.getDirection() == null || row.getStatus() == null || row.getAmount() == null){
+                throw new IllegalArgumentException("Row " + count + ": dateTime, direction, status and amount are required");
+            }
+            LocalDateTime dateTime;
+            try {
+                dateTime = LocalDateTime.parse(row.getDateTime(), dateTimeFormatter);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Row " + count + ": dateTime must be in format dd-MM-yyyy HH:mm");
+            }
+            Payment payment = new Payment(dateTime,
+                                          row.getDirection(),
+                                          row.getStatus(),
+                                          row.getAmount(),
+                                          account.currencyName(),
+                                          row.getDescription(),
+                                          paymentCategoryService.getReferenceById(paymentCategoryId),
+                                          accountService.getReferenceById(account.id()),
+                                          customer);
+            entityManager.persist(payment);
+            balanceDeltas.merge(account.id(), payment.getSignedAmount(), Double::sum);
+            earliestDates.merge(account.id(), dateTime.toLocalDate(), (a, b) -> a.isBefore(b) ? a : b);
+            rollupDeltas.add(payment);
+            if (count % importBatchSize == 0){
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        balanceDeltas.forEach(accountService::adjustBalance);
+        earliestDates.forEach(balanceCheckpointService::invalidateAfter);
+        paymentRollupService.apply(customerId, rollupDeltas);
+        return count;
+    }
+    
+    @Transactional
+    public void deletePayments(List<Long> ids, Long customerId) {
+        applyDeletedPayments(paymentRepository.deleteByIdInAndCustomerIdReturning(ids, customerId), customerId);
     }
 
+    // The payments go first, so only the accounts and days they touched are corrected
     @Transactional
-    public void deletePayments(List<Long> ids, Customer customer) {
-        ids.forEach(id -> {
-            Optional<Payment> payment = paymentRepository.findById(id);
-            payment.ifPresent(u -> {
-                if (u.getCustomer().getId().equals(customer.getId())){
-                    paymentRepository.deleteById(u.getId());
-                    Account account = u.getAccount();
-                    accountService.updateAccountBalanceInDB(account); // TODO - have to do that more optimal
-                }
-            });
-        });
+    public void deletePaymentCategories(List<Long> paymentCategoryIds, Long customerId) {
+        applyDeletedPayments(paymentRepository.deleteByPaymentCategoryIdInAndCustomerIdReturning(paymentCategoryIds, customerId), customerId);
+        paymentCategoryService.deletePaymentCategories(paymentCategoryIds, customerId);
+    }
+
+    private void applyDeletedPayments(List<PaymentRepository.DeletedPaymentView> deletedPayments, Long customerId) {
+        Map<Long, Double> balanceDeltas = new HashMap<>();
+        Map<Long, LocalDate> earliestDates = new HashMap<>();
+        PaymentRollupDeltas rollupDeltas = new PaymentRollupDeltas();
+        for (PaymentRepository.DeletedPaymentView deleted : deletedPayments){
+            if (deleted.getAccountId() != null){
+                balanceDeltas.merge(deleted.getAccountId(), deleted.getDirection() ? -deleted.getAmount() : deleted.getAmount(), Double::sum);
+                earliestDates.merge(deleted.getAccountId(), deleted.getDateTime().toLocalDate(), (a, b) -> a.isBefore(b) ? a : b);
+            }
+            rollupDeltas.add(deleted.getDateTime(), CurrencyName.valueOf(deleted.getCurrencyName()), deleted.getPaymentCategoryId(),
+                             deleted.getDirection(), deleted.getStatus(), -deleted.getAmount(), -1);
+        }
+        balanceDeltas.forEach(accountService::adjustBalance);
+        earliestDates.forEach(balanceCheckpointService::invalidateAfter);
+        paymentRollupService.apply(customerId, rollupDeltas);
     }
     
     @Transactional
     public void updatePayment(Long id, PaymentCreateUpdateDTO paymentCreateUpdateDTO) {
         Payment paymentToUpdate = getById(id);
-        Customer customer = paymentToUpdate.getCustomer();
+        Long customerId = paymentToUpdate.getCustomerId();
         Account accountBefore = paymentToUpdate.getAccount();
-        Account accountAfter = accountService.getAccountByNameAndCustomer(paymentCreateUpdateDTO.getAccountName(), customer);
-       
+        Double signedAmountBefore = paymentToUpdate.getSignedAmount();
+        LocalDate dateBefore = paymentToUpdate.getDateTime().toLocalDate();
+        PaymentRollupDeltas rollupDeltas = new PaymentRollupDeltas();
+        rollupDeltas.remove(paymentToUpdate);
+        CustomerReferences references = paymentReferenceService.getReferences(customerId);
+        CustomerReferences.AccountReference accountAfter = references.findAccount(paymentCreateUpdateDTO.getAccountId(),
+                                                                                  paymentCreateUpdateDTO.getAccountName());
+        Long paymentCategoryId = references.findPaymentCategoryId(paymentCreateUpdateDTO.getPaymentCategoryId(),
+                                                                  paymentCreateUpdateDTO.getPaymentCategoryName());
+
         paymentToUpdate.setDateTime(LocalDateTime.parse(paymentCreateUpdateDTO.getDateTime(), dateTimeFormatter));
         paymentToUpdate.setDirection(paymentCreateUpdateDTO.getDirection());
         paymentToUpdate.setStatus(paymentCreateUpdateDTO.getStatus());
         paymentToUpdate.setAmount(paymentCreateUpdateDTO.getAmount());
-        paymentToUpdate.setCurrencyName(accountService.getAccountByNameAndCustomer(paymentCreateUpdateDTO.getAccountName(), customer)
-            .getCurrencyName());
+        paymentToUpdate.setCurrencyName(accountAfter.currencyName());
         paymentToUpdate.setDescription(paymentCreateUpdateDTO.getDescription());
-        paymentToUpdate.setPaymentCategory(paymentCategoryService.getByNameAndCustomer(paymentCreateUpdateDTO.getPaymentCategoryName(), customer));
-        paymentToUpdate.setAccount(accountAfter);
+        paymentToUpdate.setPaymentCategory(paymentCategoryService.getReferenceById(paymentCategoryId));
+        paymentToUpdate.setAccount(accountService.getReferenceById(accountAfter.id()));
         paymentRepository.save(paymentToUpdate);
-        if (!accountBefore.equals(accountAfter)){
-            accountService.updateAccountBalanceInDB(accountBefore);
-            accountService.updateAccountBalanceInDB(accountAfter);
+        if (accountBefore.getId().equals(accountAfter.id())){
+            accountService.adjustBalance(accountAfter.id(), paymentToUpdate.getSignedAmount() - signedAmountBefore);
+        }else{
+            accountService.adjustBalance(accountBefore.getId(), -signedAmountBefore);
+            accountService.adjustBalance(accountAfter.id(), paymentToUpdate.getSignedAmount());
         }
+        balanceCheckpointService.invalidateAfter(accountBefore.getId(), dateBefore);
+        balanceCheckpointService.invalidateAfter(accountAfter.id(), paymentToUpdate.getDateTime().toLocalDate());
+        rollupDeltas.add(paymentToUpdate);
+        paymentRollupService.apply(customerId, rollupDeltas);
     }
 
 
     @Transactional      //TODO need to do sums round ?
     public void currencyExchange(Account accountSrc, Account accountDst, Double sumSrc, Double sumDst,
-                                                                    LocalDateTime dateTime, Customer customer){
+                                                                    LocalDateTime dateTime, Long customerId){
+        Customer customer = customerService.getReferenceById(customerId);
         CurrencyName currencyNameSrc = accountSrc.getCurrencyName();
         CurrencyName currencyNameDst = accountDst.getCurrencyName();
-        PaymentCategory paymentCategory = paymentCategoryService.getByNameAndCustomer("EXCHANGE", customer);
+        PaymentCategory paymentCategory = paymentCategoryService.getByNameAndCustomerId("EXCHANGE", customerId);
         String descriptionSrc = "Exchange " + String.format("%.2f",sumSrc) + " " + currencyNameSrc + " --> "
                        + String.format("%.2f",sumDst) + " " + currencyNameDst + " (account: '" + accountDst.getName() + "')";
         String descriptionDst = "Exchange " + String.format("%.2f",sumDst) + " " + currencyNameDst + " <-- "
@@ -150,15 +340,22 @@ public class PaymentService {
                                                 currencyNameDst, descriptionDst, paymentCategory, accountDst, customer);
         paymentRepository.save(paymentSrc);
         paymentRepository.save(paymentDst);
-        accountService.updateAccountBalanceInDB(accountSrc);
-        accountService.updateAccountBalanceInDB(accountDst);
+        accountService.adjustBalance(accountSrc.getId(), -sumSrc);
+        accountService.adjustBalance(accountDst.getId(), sumDst);
+        balanceCheckpointService.invalidateAfter(accountSrc.getId(), dateTime.toLocalDate());
+        balanceCheckpointService.invalidateAfter(accountDst.getId(), dateTime.toLocalDate());
+        PaymentRollupDeltas rollupDeltas = new PaymentRollupDeltas();
+        rollupDeltas.add(paymentSrc);
+        rollupDeltas.add(paymentDst);
+        paymentRollupService.apply(customerId, rollupDeltas);
     }
 
     @Transactional      //TODO need to do sums round ?
     public void transferToOwnAccount(Account accountSrc, Account accountDst, Double sum,
-                                 LocalDateTime dateTime, Customer customer){
+                                 LocalDateTime dateTime, Long customerId){
+        Customer customer = customerService.getReferenceById(customerId);
         CurrencyName currencyName = accountSrc.getCurrencyName();
-        PaymentCategory paymentCategory = paymentCategoryService.getByNameAndCustomer("TRANSFER", customer);
+        PaymentCategory paymentCategory = paymentCategoryService.getByNameAndCustomerId("TRANSFER", customerId);
         String descriptionSrc = "Send to account '" + accountDst.getName() + "'";
         String descriptionDst = "Receive from account '" + accountSrc.getName() + "'";
         Payment paymentSrc = new Payment(dateTime, false, true, sum,
@@ -167,82 +364,85 @@ public class PaymentService {
                 currencyName, descriptionDst, paymentCategory, accountDst, customer);
         paymentRepository.save(paymentSrc);
         paymentRepository.save(paymentDst);
-        accountService.updateAccountBalanceInDB(accountSrc);
-        accountService.updateAccountBalanceInDB(accountDst);
+        accountService.adjustBalance(accountSrc.getId(), -sum);
+        accountService.adjustBalance(accountDst.getId(), sum);
+        balanceCheckpointService.invalidateAfter(accountSrc.getId(), dateTime.toLocalDate());
+        balanceCheckpointService.invalidateAfter(accountDst.getId(), dateTime.toLocalDate());
+        PaymentRollupDeltas rollupDeltas = new PaymentRollupDeltas();
+        rollupDeltas.add(paymentSrc);
+        rollupDeltas.add(paymentDst);
+        paymentRollupService.apply(customerId, rollupDeltas);
     }
 
     @Transactional(readOnly = true)
     public Double getTotalSumByCurrency(CurrencyName currencyName, Customer customer){
-        Double totalSum = 0.0;
-        List<Payment> payments = getAllPaymentsByCurrencyName(currencyName, customer);
-        for (Payment payment : payments){
-            if (payment.getDirection()){
-                totalSum += payment.getAmount();
-            }else {
-                totalSum -= payment.getAmount();
-            }
-        }
-        return totalSum;
+        return getCurrencyStatistic(currencyName, customer).getTotalSum();
     }
+
     @Transactional(readOnly = true)
     public Double getOnScreenSumByCurrency(CurrencyName currencyName, Customer customer){
-        Double onScreenSum = 0.0;
-        List<Payment> payments = getPaymentsByCustomerAndAllFilters(customer);
-        for (Payment payment : payments){
-            if (payment.getCurrencyName().equals(currencyName)){
-                if (payment.getDirection()){
-                    onScreenSum += payment.getAmount();
-                }else {
-                    onScreenSum -= payment.getAmount();
-                }
-            }
-        }
-        return onScreenSum;
+        return getCurrencyStatistic(currencyName, customer).getOnScreenSum();
     }
 
     @Transactional(readOnly = true)
     public Double getDailySumByCurrency(CurrencyName currencyName, Customer customer){
-        Double dailySum = 0.0;
-        CustomerPeriodDTO customerPeriodDTO = CustomerPeriodDTO.of(LocalDate.now().format(dateFormatter),
-                                                                   LocalDate.now().format(dateFormatter));
-        List<Payment> payments = getAllPaymentsByPeriod(customerPeriodDTO, customer);
-        for (Payment payment : payments){
-            if (payment.getCurrencyName().equals(currencyName)){
-                if (payment.getDirection()){
-                    dailySum += payment.getAmount();
-                }else {
-                    dailySum -= payment.getAmount();
-                }
-            }
+        return getCurrencyStatistic(currencyName, customer).getDailySum();
+    }
 
+    @Transactional(readOnly = true)
+    public Map<String, Double> getStatistic(Customer customer){
+        Map<String, Double> statistic = new HashMap<>();
+        for (CurrencyStatisticDTO currencyStatistic : getCurrencyStatistics(customer).values()){
+            CurrencyName currencyName = currencyStatistic.getCurrencyName();
+            statistic.put("totalSum" + currencyName, currencyStatistic.getTotalSum());
+            statistic.put("onScreenSum" + currencyName, currencyStatistic.getOnScreenSum());
+            statistic.put("dailySum" + currencyName, currencyStatistic.getDailySum());
         }
-        return dailySum;
+        return statistic;
     }
 
+    // Income and waste per time bucket for the active period and filters of the customer
     @Transactional(readOnly = true)
-    public Map<String, Double> getStatistic(Customer customer){     // TODO make strings inline
-        Map<String, Double> statistic = new HashMap<>();
+    public PaymentSummaryDTO getSummary(Customer customer, String groupBy, boolean byCategory){
+        CustomerFiltersDTO customerFiltersDTO = customerService.getFilters(customer);
+        CustomerPeriodDTO customerPeriodDTO = customerService.getActivePeriod(customer);
 
-        Double totalSumUAH = getTotalSumByCurrency(CurrencyName.UAH, customer);
-        Double totalSumEUR = getTotalSumByCurrency(CurrencyName.EUR, customer);
-        Double totalSumUSD = getTotalSumByCurrency(CurrencyName.USD, customer);
-        Double onScreenSumUAH = getOnScreenSumByCurrency(CurrencyName.UAH, customer);
-        Double onScreenSumEUR = getOnScreenSumByCurrency(CurrencyName.EUR, customer);
-        Double onScreenSumUSD = getOnScreenSumByCurrency(CurrencyName.USD, customer);
-        Double dailySumUAH = getDailySumByCurrency(CurrencyName.UAH, customer);
-        Double dailySumEUR = getDailySumByCurrency(CurrencyName.EUR, customer);
-        Double dailySumUSD = getDailySumByCurrency(CurrencyName.USD, customer);
-
-        statistic.put("totalSumUAH", totalSumUAH);
-        statistic.put("totalSumEUR", totalSumEUR);
-        statistic.put("totalSumUSD", totalSumUSD);
-        statistic.put("onScreenSumUAH", onScreenSumUAH);
-        statistic.put("onScreenSumEUR", onScreenSumEUR);
-        statistic.put("onScreenSumUSD", onScreenSumUSD);
-        statistic.put("dailySumUAH", dailySumUAH);
-        statistic.put("dailySumEUR", dailySumEUR);
-        statistic.put("dailySumUSD", dailySumUSD);
-        return statistic;
+        return paymentRollupService.getSummary(customer.getId(),
+                                               getCurrencyNames(customerFiltersDTO),
+                                               getDirections(customerFiltersDTO),
+                                               getStatuses(customerFiltersDTO),
+                                               LocalDate.parse(customerPeriodDTO.getStartDate(), dateFormatter),
+                                               LocalDate.parse(customerPeriodDTO.getEndDate(), dateFormatter),
+                                               groupBy,
+                                               byCategory);
+    }
+
+    private CurrencyStatisticDTO getCurrencyStatistic(CurrencyName currencyName, Customer customer){
+        return getCurrencyStatistics(customer).get(currencyName);
+    }
+
+    // Every currency is present, currencies without payments have zero sums. Summed by the range index of the customer
+    private Map<CurrencyName, CurrencyStatisticDTO> getCurrencyStatistics(Customer customer){
+        CustomerFiltersDTO customerFiltersDTO = customerService.getFilters(customer);
+        CustomerPeriodDTO customerPeriodDTO = customerService.getActivePeriod(customer);
+        List<CurrencyName> currencyNames = getCurrencyNames(customerFiltersDTO);
+        List<Boolean> directions = getDirections(customerFiltersDTO);
+        List<Boolean> statuses = getStatuses(customerFiltersDTO);
+        LocalDate startDate = LocalDate.parse(customerPeriodDTO.getStartDate(), dateFormatter);
+        LocalDate endDate = LocalDate.parse(customerPeriodDTO.getEndDate(), dateFormatter);
+        LocalDate today = LocalDate.now();
+        List<Boolean> all = List.of(true, false);
+        PaymentRangeIndex index = paymentRangeIndexService.getIndex(customer.getId());
+
+        Map<CurrencyName, CurrencyStatisticDTO> statistics = new EnumMap<>(CurrencyName.class);
+        for (CurrencyName currencyName : CurrencyName.values()){
+            long totalCents = index.getSignedSumCents(currencyName, all, all, null, null);
+            long onScreenCents = currencyNames.contains(currencyName)
+                                 ? index.getSignedSumCents(currencyName, directions, statuses, startDate, endDate) : 0;
+            long dailyCents = index.getSignedSumCents(currencyName, all, all, today, today);
+            statistics.put(currencyName, new CurrencyStatisticDTO(currencyName, totalCents / 100.0, onScreenCents / 100.0, dailyCents / 100.0));
+        }
+        return statistics;
     }
 
 }
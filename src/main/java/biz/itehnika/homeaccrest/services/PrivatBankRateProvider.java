@@ -0,0 +1,70 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.dto.CurrencyDTO;
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "currency.rates.provider", havingValue = "privatbank", matchIfMissing = true)
+public class PrivatBankRateProvider implements RateProvider {
+    
+    private static final String TODAY_URL = "https://api.privatbank.ua/p24api/pubinfo?exchange&json&coursid=11";
+    private static final String ARCHIVE_URL = "https://api.privatbank.ua/p24api/exchange_rates?json&date={date}";
+    
+    private final DateTimeFormatter archiveDateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    
+    // One client for all requests, a hanging bank API must not hold the scheduler thread
+    private final RestTemplate restTemplate;
+    
+    public PrivatBankRateProvider(RestTemplateBuilder restTemplateBuilder,
+                                  @Value("${currency.rates.connect-timeout:5s}") Duration connectTimeout,
+                                  @Value("${currency.rates.read-timeout:10s}") Duration readTimeout) {
+        this.restTemplate = restTemplateBuilder
+            .setConnectTimeout(connectTimeout)
+            .setReadTimeout(readTimeout)
+            .build();
+    }
+    
+    @Override
+    public List<CurrencyDTO> getRates(LocalDate localDate) {
+        if (localDate.equals(LocalDate.now())){
+            CurrencyDTO[] ratesArray = restTemplate.getForObject(TODAY_URL, CurrencyDTO[].class);
+            return ratesArray == null ? List.of() : Arrays.asList(ratesArray);
+        }
+        List<CurrencyDTO> rates = new ArrayList<>();
+        JsonNode archive = restTemplate.getForObject(ARCHIVE_URL, JsonNode.class, localDate.format(archiveDateFormatter));
+        if (archive == null){
+            return rates;
+        }
+        for (JsonNode rate : archive.path("exchangeRate")){
+            String currencyName = rate.path("currency").asText();
+            if (isKnownCurrency(currencyName) && !currencyName.equals(CurrencyName.UAH.name()) &&
+                rate.hasNonNull("purchaseRate") && rate.hasNonNull("saleRate")){
+                rates.add(new CurrencyDTO(currencyName, rate.path("baseCurrency").asText(),
+                                          rate.get("purchaseRate").asDouble(), rate.get("saleRate").asDouble()));
+            }
+        }
+        return rates;
+    }
+    
+    private static boolean isKnownCurrency(String currencyName){
+        for (CurrencyName name : CurrencyName.values()){
+            if (name.name().equals(currencyName)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.dto.CurrencyDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Source of daily exchange rates (base currency UAH), chosen by "currency.rates.provider"
+public interface RateProvider {
+
+    // Rates of the date, empty list if the source has none for it
+    List<CurrencyDTO> getRates(LocalDate localDate);
+}
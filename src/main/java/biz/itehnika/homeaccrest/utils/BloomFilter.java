@@ -0,0 +1,57 @@
+package biz.itehnika.homeaccrest.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Thread-safe Bloom filter of strings: mightContain == false means the key was never put
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitsCount;
+    private final int hashesCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bitsCount = Math.max(64, m);
+        this.hashesCount = Math.max(1, (int) Math.round((double) bitsCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((bitsCount + 63) / 64));
+    }
+
+    public void put(String key) {
+        long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashesCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitsCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashesCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitsCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the UTF-8 bytes with a seed, finished with the SplitMix64 mixer
+    private static long hash(String key, long seed) {
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,18 @@
+package biz.itehnika.homeaccrest.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+// Authenticated customer built from the JWT claims, controllers get the owner id without loading Customer
+@Getter
+@AllArgsConstructor
+public class CustomerPrincipal implements AuthenticatedPrincipal {
+    private final Long id;
+    private final String email;
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,48 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Ids of the accounts and payment categories of one customer by name, enough to reference them from a new payment
+public class CustomerReferences {
+
+    public record AccountReference(Long id, String name, CurrencyName currencyName) {}
+
+    public record PaymentCategoryReference(Long id, String name) {}
+
+    private final Map<String, AccountReference> accountsByName = new HashMap<>();
+    private final Map<Long, AccountReference> accountsById = new HashMap<>();
+    private final Map<String, Long> paymentCategoryIdsByName = new HashMap<>();
+    private final Set<Long> paymentCategoryIds = new HashSet<>();
+
+    public CustomerReferences(List<AccountReference> accounts, List<PaymentCategoryReference> paymentCategories) {
+        for (AccountReference account : accounts) {
+            accountsByName.put(account.name(), account);
+            accountsById.put(account.id(), account);
+        }
+        for (PaymentCategoryReference paymentCategory : paymentCategories) {
+            paymentCategoryIdsByName.put(paymentCategory.name(), paymentCategory.id());
+            paymentCategoryIds.add(paymentCategory.id());
+        }
+    }
+
+    // The id wins over the name when both are given. null - the customer has no such account
+    public AccountReference findAccount(Long id, String name) {
+        if (id != null) {
+            return accountsById.get(id);
+        }
+        return name == null ? null : accountsByName.get(name);
+    }
+
+    public Long findPaymentCategoryId(Long id, String name) {
+        if (id != null) {
+            return paymentCategoryIds.contains(id) ? id : null;
+        }
+        return name == null ? null : paymentCategoryIdsByName.get(name);
+    }
+}
@@ -0,0 +1,34 @@
+package biz.itehnika.homeaccrest.utils;
+
+// Binary indexed tree of long values: point add and prefix sum in O(log n), not thread-safe
+public class FenwickTree {
+    private final long[] tree;      // 1-based
+
+    public FenwickTree(int size) {
+        this.tree = new long[size + 1];
+    }
+
+    public int size() {
+        return tree.length - 1;
+    }
+
+    public void add(int index, long delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Sum of [0, index], 0 for index < 0
+    public long prefixSum(int index) {
+        long sum = 0;
+        for (int i = Math.min(index + 1, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Sum of [from, to]
+    public long rangeSum(int from, int to) {
+        return from > to ? 0 : prefixSum(to) - prefixSum(from - 1);
+    }
+}
@@ -1,14 +1,24 @@
 package biz.itehnika.homeaccrest.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -23,12 +33,46 @@ public class JwtTokenUtils {
     @Value("${jwt.lifetime}")
     private Duration jwtLifetime;
     
-    public String generateToken(UserDetails userDetails) {
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+    
+    // Key and parser are immutable and thread-safe, built once
+    private SecretKey secretKey;
+    private JwtParser jwtParser;
+    
+    // Verified claims by token hash, an entry lives until the token's exp
+    private Cache<String, Claims> claimsCache;
+    
+    @PostConstruct
+    public void init() {
+        secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        jwtParser = Jwts.parser().verifyWith(secretKey).build();
+        claimsCache = Caffeine.newBuilder()
+            .maximumSize(claimsCacheMaxSize)
+            .expireAfter(new Expiry<String, Claims>() {
+                @Override
+                public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                    return Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()) * 1_000_000;
+                }
+                @Override
+                public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+                @Override
+                public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+    
+    public String generateToken(UserDetails userDetails, Long customerId) {
         Map<String, Object> claims = new HashMap<>();
         List<String> rolesList = userDetails.getAuthorities().stream()
             .map(GrantedAuthority::getAuthority)
             .collect(Collectors.toList());
         claims.put("roles", rolesList);
+        claims.put("customerId", customerId);
         
         Date issuedDate = new Date();
         Date expiredDate = new Date(issuedDate.getTime() + jwtLifetime.toMillis());
@@ -37,23 +81,40 @@ public class JwtTokenUtils {
             .subject(userDetails.getUsername())
             .issuedAt(issuedDate)
             .expiration(expiredDate)
-            .signWith(Keys.hmacShaKeyFor(secret.getBytes()) , Jwts.SIG.HS256)
+            .signWith(secretKey, Jwts.SIG.HS256)
             .compact();
     }
     
+    // Verifies the token once, repeated requests with the same token are served from the cache
+    public Claims getClaims(String token) {
+        String tokenHash = hashToken(token);
+        Claims claims = claimsCache.getIfPresent(tokenHash);
+        if (claims == null) {
+            claims = jwtParser.parseSignedClaims(token).getPayload();
+            claimsCache.put(tokenHash, claims);
+        }
+        return claims;
+    }
+    
     public String getUsername(String token) {
-        return getAllClaimsFromToken(token).getSubject();
+        return getClaims(token).getSubject();
+    }
+    
+    // null for tokens issued before the claim was added
+    public Long getCustomerId(Claims claims) {
+        return claims.get("customerId", Long.class);
     }
     
-    public List<?> getRoles(String token) {
-        return getAllClaimsFromToken(token).get("roles", List.class);
+    public List<?> getRoles(Claims claims) {
+        return claims.get("roles", List.class);
     }
     
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-            .verifyWith(Keys.hmacShaKeyFor(secret.getBytes()))
-            .build()
-            .parseSignedClaims(token)
-            .getPayload();
+    public static String hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
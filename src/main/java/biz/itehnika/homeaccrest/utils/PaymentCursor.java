@@ -0,0 +1,38 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.dto.PaymentRowDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Keyset position in the payments list: last seen (dateTime, id)
+@Getter
+@AllArgsConstructor
+public class PaymentCursor {
+    private final LocalDateTime dateTime;
+    private final Long id;
+
+    public static PaymentCursor of(PaymentRowDTO paymentRow) {
+        return new PaymentCursor(paymentRow.getDateTime(), paymentRow.getId());
+    }
+
+    public String encode() {
+        String raw = dateTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PaymentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new PaymentCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                                     Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor is wrong", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Active period and filters of a customer as the payments list query sees them
+@Getter
+@AllArgsConstructor
+public class PaymentFilter {
+    private final List<CurrencyName> currencyNames;
+    private final List<Boolean> directions;
+    private final List<Boolean> statuses;
+    private final LocalDateTime startDateTime;
+    private final LocalDateTime endDateTime;
+
+    // Some group has no flag set, nothing can match
+    public boolean isEmpty() {
+        return currencyNames.isEmpty() || directions.isEmpty() || statuses.isEmpty();
+    }
+
+    // A group with every flag set filters nothing
+    public boolean isAllCurrencies() {
+        return currencyNames.size() == CurrencyName.values().length;
+    }
+
+    public boolean isAllDirections() {
+        return directions.size() == 2;
+    }
+
+    public boolean isAllStatuses() {
+        return statuses.size() == 2;
+    }
+}
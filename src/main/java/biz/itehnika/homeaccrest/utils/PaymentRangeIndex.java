@@ -0,0 +1,61 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Payment amounts of one customer in cents by day, one Fenwick tree per (currency, direction, status):
+// the sum over any period is two prefix sums per tree
+public class PaymentRangeIndex {
+    private final LocalDate firstDate;
+    private final FenwickTree[] trees;
+
+    public PaymentRangeIndex(LocalDate firstDate, LocalDate lastDate) {
+        this.firstDate = firstDate;
+        int days = (int) ChronoUnit.DAYS.between(firstDate, lastDate) + 1;
+        this.trees = new FenwickTree[CurrencyName.values().length * 4];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new FenwickTree(days);
+        }
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // false - the date is out of the index range, nothing is changed
+    public synchronized boolean add(LocalDate date, CurrencyName currencyName, boolean direction, boolean status, long cents) {
+        int day = (int) ChronoUnit.DAYS.between(firstDate, date);
+        if (day < 0 || day >= trees[0].size()) {
+            return false;
+        }
+        trees[treeIndex(currencyName, direction, status)].add(day, cents);
+        return true;
+    }
+
+    // Income minus waste of [startDate, endDate] for the given directions and statuses, null dates - unbounded
+    public synchronized long getSignedSumCents(CurrencyName currencyName, List<Boolean> directions, List<Boolean> statuses,
+                                               LocalDate startDate, LocalDate endDate) {
+        int from = startDate == null ? 0 : (int) Math.max(0, ChronoUnit.DAYS.between(firstDate, startDate));
+        int to = endDate == null ? trees[0].size() - 1
+                                 : (int) Math.min(trees[0].size() - 1, ChronoUnit.DAYS.between(firstDate, endDate));
+        long sum = 0;
+        for (Boolean direction : directions) {
+            for (Boolean status : statuses) {
+                long cents = trees[treeIndex(currencyName, direction, status)].rangeSum(from, to);
+                sum += direction ? cents : -cents;
+            }
+        }
+        return sum;
+    }
+
+    public int weightBytes() {
+        return trees.length * (trees[0].size() + 1) * Long.BYTES;
+    }
+
+    private static int treeIndex(CurrencyName currencyName, boolean direction, boolean status) {
+        return currencyName.ordinal() * 4 + (direction ? 2 : 0) + (status ? 1 : 0);
+    }
+}
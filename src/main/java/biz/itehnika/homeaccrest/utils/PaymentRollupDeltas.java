@@ -0,0 +1,49 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.models.Payment;
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// Changes of payment_daily_rollup collected by one write operation, one upsert per touched key
+public class PaymentRollupDeltas {
+
+    public record Key(LocalDate paymentDate, CurrencyName currencyName, Long paymentCategoryId, Boolean direction, Boolean status) {}
+
+    public record Delta(double amount, long paymentsCount) {}
+
+    private final Map<Key, Delta> deltas = new HashMap<>();
+
+    public void add(Payment payment){
+        add(payment.getDateTime(), payment.getCurrencyName(), getPaymentCategoryId(payment),
+            payment.getDirection(), payment.getStatus(), payment.getAmount(), 1);
+    }
+
+    public void remove(Payment payment){
+        add(payment.getDateTime(), payment.getCurrencyName(), getPaymentCategoryId(payment),
+            payment.getDirection(), payment.getStatus(), -payment.getAmount(), -1);
+    }
+
+    public void add(LocalDateTime dateTime, CurrencyName currencyName, Long paymentCategoryId,
+                    Boolean direction, Boolean status, double amount, long paymentsCount){
+        Key key = new Key(dateTime.toLocalDate(), currencyName, paymentCategoryId == null ? 0L : paymentCategoryId, direction, status);
+        deltas.merge(key, new Delta(amount, paymentsCount),
+                     (a, b) -> new Delta(a.amount() + b.amount(), a.paymentsCount() + b.paymentsCount()));
+    }
+
+    public void forEach(BiConsumer<Key, Delta> action){
+        deltas.forEach(action);
+    }
+
+    public boolean hasRemovals(){
+        return deltas.values().stream().anyMatch(delta -> delta.paymentsCount() < 0);
+    }
+
+    private static Long getPaymentCategoryId(Payment payment){
+        return payment.getPaymentCategory() == null ? null : payment.getPaymentCategory().getId();
+    }
+}
@@ -0,0 +1,67 @@
+-- Schema as it was generated by Hibernate before migrations were introduced.
+-- Existing databases are baselined at version 1, so this script only runs on an empty database.
+
+CREATE TABLE IF NOT EXISTS customer (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email        VARCHAR(255),
+    password     VARCHAR(255),
+    first_name   VARCHAR(255),
+    last_name    VARCHAR(255),
+    role         VARCHAR(255) CHECK (role IN ('ADMIN', 'USER')),
+    phone        VARCHAR(255),
+    address      VARCHAR(255),
+    start_date   DATE,
+    end_date     DATE,
+    isuah        BOOLEAN,
+    iseur        BOOLEAN,
+    isusd        BOOLEAN,
+    isin         BOOLEAN,
+    isout        BOOLEAN,
+    is_completed BOOLEAN,
+    is_scheduled BOOLEAN
+);
+
+CREATE TABLE IF NOT EXISTS account (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name          VARCHAR(255),
+    description   VARCHAR(255),
+    type          SMALLINT CHECK (type BETWEEN 0 AND 3),
+    currency_name VARCHAR(255) CHECK (currency_name IN ('UAH', 'EUR', 'USD')),
+    balance       FLOAT(53),
+    customer_id   BIGINT REFERENCES customer (id)
+);
+
+CREATE TABLE IF NOT EXISTS payment_category (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255),
+    description VARCHAR(255),
+    customer_id BIGINT REFERENCES customer (id)
+);
+
+CREATE TABLE IF NOT EXISTS payment (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    date_time           TIMESTAMP(6),
+    direction           BOOLEAN,
+    status              BOOLEAN,
+    amount              FLOAT(53),
+    currency_name       VARCHAR(255) CHECK (currency_name IN ('UAH', 'EUR', 'USD')),
+    description         VARCHAR(255),
+    payment_category_id BIGINT REFERENCES payment_category (id),
+    account_id          BIGINT REFERENCES account (id),
+    customer_id         BIGINT REFERENCES customer (id)
+);
+
+CREATE TABLE IF NOT EXISTS currency (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name      VARCHAR(255) CHECK (name IN ('UAH', 'EUR', 'USD')),
+    name_base VARCHAR(255) CHECK (name_base IN ('UAH', 'EUR', 'USD')),
+    buy_rate  FLOAT(53),
+    sale_rate FLOAT(53),
+    date_rate DATE
+);
+
+CREATE TABLE IF NOT EXISTS invalid_token (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token           VARCHAR(255),
+    valid_date_time TIMESTAMP(6)
+);
@@ -0,0 +1,18 @@
+-- Payments list: customer + dateTime range, ordered by (dateTime, id); also the keyset cursor
+CREATE INDEX IF NOT EXISTS idx_payment_customer_date_time ON payment (customer_id, date_time, id);
+-- Account balance, account/category deletion
+CREATE INDEX IF NOT EXISTS idx_payment_account ON payment (account_id);
+CREATE INDEX IF NOT EXISTS idx_payment_category ON payment (payment_category_id);
+
+-- findByNameAndCustomer, findAccountsByCustomer, findPaymentCategoryByNameAndCustomer ...
+CREATE INDEX IF NOT EXISTS idx_account_customer_name ON account (customer_id, name);
+CREATE INDEX IF NOT EXISTS idx_payment_category_customer_name ON payment_category (customer_id, name);
+
+-- findCustomerByEmail
+CREATE INDEX IF NOT EXISTS idx_customer_email ON customer (email);
+
+-- findCurrenciesByDateRate, existsByDateRate, findCurrencyByNameAndDateRate
+CREATE INDEX IF NOT EXISTS idx_currency_date_rate_name ON currency (date_rate, name);
+
+-- existsInvalidTokenByToken
+CREATE INDEX IF NOT EXISTS idx_invalid_token_token ON invalid_token (token);
@@ -0,0 +1,4 @@
+-- Payment ids come from a pooled sequence (allocationSize 50) so Hibernate can batch inserts
+CREATE SEQUENCE IF NOT EXISTS payment_seq INCREMENT BY 50;
+SELECT setval('payment_seq', COALESCE((SELECT MAX(id) FROM payment), 0) + 50, false);
+ALTER TABLE payment ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,2 @@
+-- Tokens carry more claims (customerId) and long e-mails, 255 characters is not enough
+ALTER TABLE invalid_token ALTER COLUMN token TYPE VARCHAR(1024);
@@ -0,0 +1,2 @@
+-- Hourly purge of expired tokens and loading of the blacklist at startup
+CREATE INDEX IF NOT EXISTS idx_invalid_token_valid_date_time ON invalid_token (valid_date_time);
@@ -0,0 +1,7 @@
+-- One row of rates per currency and date, lets the daily job and the backfill insert with ON CONFLICT DO NOTHING
+DELETE FROM currency c
+USING currency d
+WHERE c.name = d.name AND c.date_rate = d.date_rate AND c.id > d.id;
+
+DROP INDEX IF EXISTS idx_currency_date_rate_name;
+CREATE UNIQUE INDEX idx_currency_date_rate_name ON currency (date_rate, name);
@@ -0,0 +1,22 @@
+-- Sums and counts of payments per customer, day, currency, category, direction and status.
+-- Kept up to date by every payment write; range statistics read these rows instead of the payments
+CREATE TABLE IF NOT EXISTS payment_daily_rollup (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    customer_id         BIGINT       NOT NULL REFERENCES customer (id) ON DELETE CASCADE,
+    payment_date        DATE         NOT NULL,
+    currency_name       VARCHAR(255) NOT NULL CHECK (currency_name IN ('UAH', 'EUR', 'USD')),
+    payment_category_id BIGINT       NOT NULL,     -- 0 - payments without category
+    direction           BOOLEAN      NOT NULL,
+    status              BOOLEAN      NOT NULL,
+    amount              FLOAT(53)    NOT NULL,
+    payments_count      BIGINT       NOT NULL,
+    CONSTRAINT uk_payment_daily_rollup
+        UNIQUE (customer_id, payment_date, currency_name, payment_category_id, direction, status)
+);
+
+INSERT INTO payment_daily_rollup (customer_id, payment_date, currency_name, payment_category_id, direction, status, amount, payments_count)
+SELECT customer_id, CAST(date_time AS DATE), currency_name, COALESCE(payment_category_id, 0), direction, status, SUM(amount), COUNT(*)
+FROM payment
+WHERE customer_id IS NOT NULL AND date_time IS NOT NULL AND currency_name IS NOT NULL
+  AND direction IS NOT NULL AND status IS NOT NULL AND amount IS NOT NULL
+GROUP BY customer_id, CAST(date_time AS DATE), currency_name, COALESCE(payment_category_id, 0), direction, status;
@@ -0,0 +1,4 @@
+-- Balance history of an account: running sum ordered by (date_time, id), and the opening balance before a date.
+-- Its account_id prefix also serves the plain account lookups, so the single-column V2 index is dropped
+CREATE INDEX IF NOT EXISTS idx_payment_account_date_time ON payment (account_id, date_time, id);
+DROP INDEX IF EXISTS idx_payment_account;
@@ -0,0 +1,9 @@
+-- Account balance before checkpoint_date (sum of the payments with date_time < checkpoint_date),
+-- written for month starts and deleted when an earlier payment of the account changes
+CREATE TABLE IF NOT EXISTS balance_checkpoint (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_id      BIGINT    NOT NULL REFERENCES account (id) ON DELETE CASCADE,
+    checkpoint_date DATE      NOT NULL,
+    balance         FLOAT(53) NOT NULL,
+    CONSTRAINT uk_balance_checkpoint UNIQUE (account_id, checkpoint_date)
+);
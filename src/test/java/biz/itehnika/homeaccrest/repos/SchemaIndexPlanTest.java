@@ -0,0 +1,107 @@
+package biz.itehnika.homeaccrest.repos;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Needs a scratch PostgreSQL database: PLAN_TEST_DATASOURCE_URL / _USERNAME / _PASSWORD (migrations are applied to it)
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DATASOURCE_URL", matches = "jdbc:postgresql:.*")
+class SchemaIndexPlanTest {
+
+    private static final String URL = System.getenv("PLAN_TEST_DATASOURCE_URL");
+    private static final String USERNAME = System.getenv("PLAN_TEST_DATASOURCE_USERNAME");
+    private static final String PASSWORD = System.getenv("PLAN_TEST_DATASOURCE_PASSWORD");
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure().dataSource(URL, USERNAME, PASSWORD).baselineOnMigrate(true).load().migrate();
+    }
+
+    @Test
+    void paymentsListUsesCustomerDateTimeIndex() throws SQLException {
+        assertPlanUses("idx_payment_customer_date_time",
+            "SELECT p.id, p.date_time, p.direction, p.status, p.amount, p.currency_name, p.description, pc.name, a.name " +
+            "FROM payment p LEFT JOIN payment_category pc ON pc.id = p.payment_category_id LEFT JOIN account a ON a.id = p.account_id " +
+            "WHERE p.customer_id = 1 AND p.currency_name IN ('UAH', 'EUR') AND p.direction IN (true, false) " +
+            "AND p.status IN (true) AND p.date_time BETWEEN '2024-01-01' AND '2024-12-31' " +
+            "ORDER BY p.date_time, p.id LIMIT 50");
+    }
+
+    @Test
+    void accountPaymentsUseAccountDateTimeIndex() throws SQLException {
+        assertPlanUses("idx_payment_account_date_time", "SELECT * FROM payment WHERE account_id = 1");
+    }
+
+    @Test
+    void balanceHistoryUsesAccountDateTimeIndex() throws SQLException {
+        assertPlanUses("idx_payment_account_date_time",
+            "SELECT date_time, SUM(CASE WHEN direction THEN amount ELSE -amount END) OVER (ORDER BY date_time, id) " +
+            "FROM payment WHERE account_id = 1 AND date_time BETWEEN '2024-01-01' AND '2024-12-31' ORDER BY date_time, id");
+    }
+
+    @Test
+    void checkpointLookupUsesAccountDateIndex() throws SQLException {
+        assertPlanUses("uk_balance_checkpoint",
+            "SELECT * FROM balance_checkpoint WHERE account_id = 1 AND checkpoint_date <= '2024-07-01' " +
+            "ORDER BY checkpoint_date DESC LIMIT 1");
+    }
+
+    @Test
+    void accountByNameUsesCustomerNameIndex() throws SQLException {
+        assertPlanUses("idx_account_customer_name", "SELECT * FROM account WHERE name = 'Wallet' AND customer_id = 1");
+    }
+
+    @Test
+    void categoryByNameUsesCustomerNameIndex() throws SQLException {
+        assertPlanUses("idx_payment_category_customer_name",
+            "SELECT * FROM payment_category WHERE name = 'FOOD' AND customer_id = 1");
+    }
+
+    @Test
+    void currencyByNameAndDateUsesDateRateIndex() throws SQLException {
+        assertPlanUses("idx_currency_date_rate_name", "SELECT * FROM currency WHERE name = 'EUR' AND date_rate = '2024-07-01'");
+        assertPlanUses("idx_currency_date_rate_name", "SELECT * FROM currency WHERE date_rate = '2024-07-01'");
+    }
+
+    @Test
+    void invalidTokenLookupUsesTokenIndex() throws SQLException {
+        assertPlanUses("idx_invalid_token_token", "SELECT 1 FROM invalid_token WHERE token = 'eyJhbGciOiJIUzI1NiJ9' LIMIT 1");
+    }
+
+    @Test
+    void expiredTokensPurgeUsesValidDateTimeIndex() throws SQLException {
+        assertPlanUses("idx_invalid_token_valid_date_time",
+            "SELECT id FROM invalid_token WHERE valid_date_time < '2024-07-01' LIMIT 1000");
+    }
+
+    @Test
+    void rangeIndexBuildReadsRollupsOfCustomer() throws SQLException {
+        assertPlanUses("uk_payment_daily_rollup", "SELECT * FROM payment_daily_rollup WHERE customer_id = 1");
+    }
+
+    private static void assertPlanUses(String indexName, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");     // small test tables would be scanned anyway
+            try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+        }
+        // Whole identifier: idx_payment_account must not match idx_payment_account_date_time
+        Pattern index = Pattern.compile("\\b" + Pattern.quote(indexName) + "\\b");
+        assertTrue(index.matcher(plan).find(), "Expected " + indexName + " in plan:\n" + plan);
+    }
+}
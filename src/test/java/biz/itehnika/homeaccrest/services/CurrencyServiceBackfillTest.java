@@ -0,0 +1,95 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.config.CacheConfig;
+import biz.itehnika.homeaccrest.models.Currency;
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import biz.itehnika.homeaccrest.repos.CurrencyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CurrencyServiceBackfillTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 3, 3);
+
+    private final CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final org.hibernate.Cache hibernateCache = mock(org.hibernate.Cache.class);
+    private final ExecutorService backfillExecutor = Executors.newFixedThreadPool(2);
+    private CurrencyService currencyService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+        when(entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)).thenReturn(hibernateCache);
+        FileRateProvider rateProvider = new FileRateProvider(new ObjectMapper(), new ClassPathResource("rates.json"));
+        currencyService = new CurrencyService(currencyRepository, rateProvider, jdbcTemplate, entityManagerFactory, backfillExecutor);
+        currencyService.loadRates();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backfillExecutor.shutdown();
+    }
+
+    @Test
+    void backfillsMissingDatesFromRatesFile() {
+        insertedRowCounts(1, 1, 1, 1, 1, 1);
+        assertEquals(3 * 2, currencyService.backfillRates(FROM, TO));     // 3 dates, EUR and USD
+
+        verify(hibernateCache).evictQueryRegion(CacheConfig.CURRENCY_QUERY_REGION);
+        Currency usd = currencyService.getCurrencyByNameAsOf(CurrencyName.USD, TO);
+        assertEquals(TO, usd.getDateRate());
+        assertEquals(41.0, usd.getBuyRate());
+        assertEquals(45.5, currencyService.getCurrencyByNameAsOf(CurrencyName.EUR, FROM).getSaleRate());
+        assertEquals(41.0 / 45.5, currencyService.getExchangeRate(CurrencyName.USD, CurrencyName.EUR, TO));
+        verify(currencyRepository, never()).findCurrenciesByDateRate(any());
+
+        // Every date is in memory now, nothing is fetched or inserted again
+        assertEquals(0, currencyService.backfillRates(FROM, TO));
+        verify(jdbcTemplate).batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void ratesAlreadyInTheDatabaseWinOverTheProvider() {
+        LocalDate skipped = FROM.plusDays(1);
+        insertedRowCounts(1, 1, 0, 0, 1, 1);      // the rows of the second date were inserted by another run
+        when(currencyRepository.findCurrenciesByDateRate(skipped)).thenReturn(List.of(
+            new Currency(CurrencyName.EUR, CurrencyName.UAH, 44.0, 45.0, skipped),
+            new Currency(CurrencyName.USD, CurrencyName.UAH, 40.0, 40.5, skipped)));
+
+        assertEquals(4, currencyService.backfillRates(FROM, TO));
+        assertEquals(40.0, currencyService.getCurrencyByNameAsOf(CurrencyName.USD, skipped).getBuyRate());
+        assertEquals(45.0, currencyService.getCurrencyByNameAsOf(CurrencyName.EUR, skipped).getSaleRate());
+        assertEquals(41.0, currencyService.getCurrencyByNameAsOf(CurrencyName.USD, TO).getBuyRate());
+        verify(currencyRepository, never()).findCurrenciesByDateRate(FROM);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void insertedRowCounts(int... counts) {
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+            .thenReturn(new int[][]{counts});
+    }
+}
@@ -0,0 +1,95 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import biz.itehnika.homeaccrest.repos.PaymentDailyRollupRepository;
+import biz.itehnika.homeaccrest.utils.PaymentRangeIndex;
+import biz.itehnika.homeaccrest.utils.PaymentRollupDeltas;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PaymentRangeIndexServiceTest extends PostgresTransactionTest {
+
+    private static final List<Boolean> ALL = List.of(true, false);
+
+    @Autowired
+    private PaymentDailyRollupRepository paymentDailyRollupRepository;
+
+    @Test
+    void onlyCommittedWritesReachTheSums() {
+        Long customerId = createCustomer();
+        PaymentRangeIndexService paymentRangeIndexService = newService(paymentDailyRollupRepository);
+        PaymentRollupService paymentRollupService = new PaymentRollupService(paymentDailyRollupRepository, paymentRangeIndexService);
+
+        write(paymentRollupService, customerId, 100.0);
+        assertEquals(10_000, totalCents(paymentRangeIndexService.getIndex(customerId)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentRollupService.apply(customerId, income(50.0));
+            // Other transactions don't see the write yet, what they cache now is dropped by the commit
+            assertEquals(10_000, CompletableFuture.supplyAsync(() -> totalCents(paymentRangeIndexService.getIndex(customerId))).join());
+        });
+        assertEquals(15_000, totalCents(paymentRangeIndexService.getIndex(customerId)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentRollupService.apply(customerId, income(40.0));
+            status.setRollbackOnly();
+        });
+        assertEquals(15_000, totalCents(paymentRangeIndexService.getIndex(customerId)));
+    }
+
+    @Test
+    void indexBuiltFromRollupsReadBeforeACommitIsNotCached() throws Exception {
+        Long customerId = createCustomer();
+        CountDownLatch rollupsRead = new CountDownLatch(1);
+        CountDownLatch writeCommitted = new CountDownLatch(1);
+        PaymentDailyRollupRepository pausingRepository = mock(PaymentDailyRollupRepository.class, delegatesTo(paymentDailyRollupRepository));
+        doAnswer(invocation -> {
+            Object rollups = paymentDailyRollupRepository.findByCustomerId(customerId);
+            rollupsRead.countDown();
+            assertTrue(writeCommitted.await(10, TimeUnit.SECONDS));
+            return rollups;
+        }).when(pausingRepository).findByCustomerId(customerId);
+        PaymentRangeIndexService paymentRangeIndexService = newService(pausingRepository);
+        PaymentRollupService paymentRollupService = new PaymentRollupService(paymentDailyRollupRepository, paymentRangeIndexService);
+        write(paymentRollupService, customerId, 100.0);
+
+        CompletableFuture<PaymentRangeIndex> reader = CompletableFuture.supplyAsync(() -> paymentRangeIndexService.getIndex(customerId));
+        assertTrue(rollupsRead.await(10, TimeUnit.SECONDS));
+        write(paymentRollupService, customerId, 50.0);
+        writeCommitted.countDown();
+
+        assertEquals(10_000, totalCents(reader.get(10, TimeUnit.SECONDS)));     // answered from what it read
+        assertEquals(15_000, totalCents(paymentRangeIndexService.getIndex(customerId)));
+    }
+
+    private static PaymentRangeIndexService newService(PaymentDailyRollupRepository paymentDailyRollupRepository) {
+        return new PaymentRangeIndexService(paymentDailyRollupRepository, 1 << 20, Duration.ofMinutes(30));
+    }
+
+    private void write(PaymentRollupService paymentRollupService, Long customerId, double amount) {
+        transactionTemplate.executeWithoutResult(status -> paymentRollupService.apply(customerId, income(amount)));
+    }
+
+    private static PaymentRollupDeltas income(double amount) {
+        PaymentRollupDeltas deltas = new PaymentRollupDeltas();
+        deltas.add(LocalDateTime.of(2024, 3, 4, 10, 0), CurrencyName.UAH, null, true, true, amount, 1);
+        return deltas;
+    }
+
+    private static long totalCents(PaymentRangeIndex index) {
+        return index.getSignedSumCents(CurrencyName.UAH, ALL, ALL, null, null);
+    }
+}
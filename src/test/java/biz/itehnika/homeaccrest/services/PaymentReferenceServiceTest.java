@@ -0,0 +1,91 @@
+package biz.itehnika.homeaccrest.services;
+
+import biz.itehnika.homeaccrest.repos.AccountRepository;
+import biz.itehnika.homeaccrest.repos.PaymentCategoryRepository;
+import biz.itehnika.homeaccrest.utils.CustomerReferences;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PaymentReferenceServiceTest extends PostgresTransactionTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PaymentCategoryRepository paymentCategoryRepository;
+
+    @Test
+    void onlyCommittedChangesReplaceTheNames() {
+        Long customerId = createCustomer();
+        Long accountId = createAccount(customerId, "Wallet");
+        PaymentReferenceService paymentReferenceService = newService(accountRepository);
+        assertEquals(accountId, paymentReferenceService.getReferences(customerId).findAccount(null, "Wallet").id());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            renameAccount(paymentReferenceService, accountId, "Purse");
+            status.setRollbackOnly();
+        });
+        assertNotNull(paymentReferenceService.getReferences(customerId).findAccount(null, "Wallet"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            renameAccount(paymentReferenceService, accountId, "Purse");
+            // Other transactions still read and cache the old name, the commit drops it
+            assertNotNull(CompletableFuture.supplyAsync(() -> paymentReferenceService.getReferences(customerId)).join()
+                              .findAccount(null, "Wallet"));
+        });
+        CustomerReferences references = paymentReferenceService.getReferences(customerId);
+        assertNull(references.findAccount(null, "Wallet"));
+        assertEquals(accountId, references.findAccount(null, "Purse").id());
+    }
+
+    @Test
+    void namesReadBeforeACommitAreNotCached() throws Exception {
+        Long customerId = createCustomer();
+        Long accountId = createAccount(customerId, "Wallet");
+        CountDownLatch namesRead = new CountDownLatch(1);
+        CountDownLatch changeCommitted = new CountDownLatch(1);
+        AccountRepository pausingRepository = mock(AccountRepository.class, delegatesTo(accountRepository));
+        doAnswer(invocation -> {
+            Object accounts = accountRepository.findReferencesByCustomerId(customerId);
+            namesRead.countDown();
+            assertTrue(changeCommitted.await(10, TimeUnit.SECONDS));
+            return accounts;
+        }).when(pausingRepository).findReferencesByCustomerId(customerId);
+        PaymentReferenceService paymentReferenceService = newService(pausingRepository);
+
+        CompletableFuture<CustomerReferences> reader = CompletableFuture.supplyAsync(() -> paymentReferenceService.getReferences(customerId));
+        assertTrue(namesRead.await(10, TimeUnit.SECONDS));
+        transactionTemplate.executeWithoutResult(status -> renameAccount(paymentReferenceService, accountId, "Purse"));
+        changeCommitted.countDown();
+
+        assertNotNull(reader.get(10, TimeUnit.SECONDS).findAccount(null, "Wallet"));     // answered from what it read
+        assertNotNull(paymentReferenceService.getReferences(customerId).findAccount(null, "Purse"));
+    }
+
+    private PaymentReferenceService newService(AccountRepository accountRepository) {
+        return new PaymentReferenceService(accountRepository, paymentCategoryRepository, 100, Duration.ofMinutes(30));
+    }
+
+    private Long createAccount(Long customerId, String name) {
+        return jdbcTemplate.queryForObject("INSERT INTO account (name, currency_name, balance, customer_id) VALUES (?, 'UAH', 0, ?) RETURNING id",
+                                           Long.class, name, customerId);
+    }
+
+    private void renameAccount(PaymentReferenceService paymentReferenceService, Long accountId, String name) {
+        jdbcTemplate.update("UPDATE account SET name = ? WHERE id = ?", name, accountId);
+        paymentReferenceService.invalidate(jdbcTemplate.queryForObject("SELECT customer_id FROM account WHERE id = ?", Long.class, accountId));
+    }
+}
@@ -0,0 +1,58 @@
+package biz.itehnika.homeaccrest.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Services against a scratch PostgreSQL database (PLAN_TEST_DATASOURCE_URL / _USERNAME / _PASSWORD, migrations are applied to it).
+// Tests are not wrapped in a transaction: every write commits or rolls back for real
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DATASOURCE_URL", matches = "jdbc:postgresql:.*")
+abstract class PostgresTransactionTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("PLAN_TEST_DATASOURCE_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("PLAN_TEST_DATASOURCE_USERNAME"));
+        registry.add("spring.datasource.password", () -> System.getenv("PLAN_TEST_DATASOURCE_PASSWORD"));
+        registry.add("spring.flyway.baseline-on-migrate", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    private final List<Long> customerIds = new ArrayList<>();
+
+    protected Long createCustomer() {
+        Long customerId = jdbcTemplate.queryForObject("INSERT INTO customer (email) VALUES ('test@example.com') RETURNING id", Long.class);
+        customerIds.add(customerId);
+        return customerId;
+    }
+
+    @AfterEach
+    void deleteCustomers() {
+        for (Long customerId : customerIds) {
+            jdbcTemplate.update("DELETE FROM payment_daily_rollup WHERE customer_id = ?", customerId);
+            jdbcTemplate.update("DELETE FROM account WHERE customer_id = ?", customerId);
+            jdbcTemplate.update("DELETE FROM payment_category WHERE customer_id = ?", customerId);
+            jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customerId);
+        }
+    }
+}
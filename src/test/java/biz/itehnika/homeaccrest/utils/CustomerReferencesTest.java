@@ -0,0 +1,39 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CustomerReferencesTest {
+
+    private static final CustomerReferences.AccountReference WALLET = new CustomerReferences.AccountReference(1L, "Wallet", CurrencyName.UAH);
+    private static final CustomerReferences.AccountReference EURO = new CustomerReferences.AccountReference(2L, "Euro", CurrencyName.EUR);
+
+    private final CustomerReferences references = new CustomerReferences(
+        List.of(WALLET, EURO),
+        List.of(new CustomerReferences.PaymentCategoryReference(10L, "FOOD"), new CustomerReferences.PaymentCategoryReference(11L, "SALARY")));
+
+    @Test
+    void idWinsOverName() {
+        assertEquals(EURO, references.findAccount(2L, "Wallet"));
+        assertEquals(11L, references.findPaymentCategoryId(11L, "FOOD"));
+    }
+
+    @Test
+    void foreignIdIsNotFoundEvenWithAKnownName() {
+        assertNull(references.findAccount(99L, "Wallet"));
+        assertNull(references.findPaymentCategoryId(99L, "FOOD"));
+    }
+
+    @Test
+    void nameIsUsedWithoutId() {
+        assertEquals(WALLET, references.findAccount(null, "Wallet"));
+        assertEquals(10L, references.findPaymentCategoryId(null, "FOOD"));
+        assertNull(references.findAccount(null, "Unknown"));
+        assertNull(references.findPaymentCategoryId(null, null));
+    }
+}
@@ -0,0 +1,34 @@
+package biz.itehnika.homeaccrest.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FenwickTreeTest {
+
+    @Test
+    void rangeSumsMatchPlainArray() {
+        Random random = new Random(42);
+        int size = 1000;
+        FenwickTree tree = new FenwickTree(size);
+        long[] values = new long[size];
+        for (int step = 0; step < 5000; step++) {
+            int index = random.nextInt(size);
+            long delta = random.nextInt(200_001) - 100_000;
+            tree.add(index, delta);
+            values[index] += delta;
+
+            int from = random.nextInt(size);
+            int to = from + random.nextInt(size - from);
+            long expected = 0;
+            for (int i = from; i <= to; i++) {
+                expected += values[i];
+            }
+            assertEquals(expected, tree.rangeSum(from, to));
+        }
+        assertEquals(0, tree.prefixSum(-1));
+        assertEquals(0, tree.rangeSum(10, 9));
+    }
+}
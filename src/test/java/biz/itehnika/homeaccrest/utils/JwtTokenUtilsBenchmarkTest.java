@@ -0,0 +1,83 @@
+package biz.itehnika.homeaccrest.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Token handling cost of JwtRequestFilter per request (without the blacklist lookup)
+@Slf4j
+class JwtTokenUtilsBenchmarkTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final int WARMUP = 5_000;
+    private static final int ITERATIONS = 20_000;
+
+    private JwtTokenUtils jwtTokenUtils;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenUtils = new JwtTokenUtils();
+        ReflectionTestUtils.setField(jwtTokenUtils, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtTokenUtils, "jwtLifetime", Duration.ofMinutes(60));
+        ReflectionTestUtils.setField(jwtTokenUtils, "claimsCacheMaxSize", 1000L);
+        jwtTokenUtils.init();
+        token = jwtTokenUtils.generateToken(new User("bill@mail.com", "", List.of(new SimpleGrantedAuthority("ROLE_USER"))), 42L);
+    }
+
+    @Test
+    void claimsAreParsedOnceAndCached() {
+        Claims claims = jwtTokenUtils.getClaims(token);
+        assertEquals("bill@mail.com", claims.getSubject());
+        assertEquals(42L, jwtTokenUtils.getCustomerId(claims));
+        assertEquals(List.of("ROLE_USER"), jwtTokenUtils.getRoles(claims));
+        assertTrue(claims == jwtTokenUtils.getClaims(token));
+    }
+
+    // Manual benchmark, timings only logged: JWT_BENCHMARK=true mvn test -Dtest=JwtTokenUtilsBenchmarkTest
+    @Test
+    @EnabledIfEnvironmentVariable(named = "JWT_BENCHMARK", matches = "true")
+    void filterCostPerRequest() {
+        long before = nanosPerRequest(this::legacyFilterParse);
+        JwtParser jwtParser = (JwtParser) ReflectionTestUtils.getField(jwtTokenUtils, "jwtParser");
+        long parseOnce = nanosPerRequest(t -> jwtTokenUtils.getRoles(jwtParser.parseSignedClaims(t).getPayload()));
+        long after = nanosPerRequest(t -> {
+            Claims claims = jwtTokenUtils.getClaims(t);
+            claims.getSubject();
+            jwtTokenUtils.getRoles(claims);
+        });
+        log.info("JWT filter cost per request: before {} ns, prebuilt parser {} ns, cached claims {} ns", before, parseOnce, after);
+    }
+
+    // What the filter did before: new key and parser, token verified twice (username, roles)
+    private void legacyFilterParse(String t) {
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseSignedClaims(t).getPayload().getSubject();
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseSignedClaims(t).getPayload().get("roles", List.class);
+    }
+
+    private long nanosPerRequest(Consumer<String> filter) {
+        for (int i = 0; i < WARMUP; i++) {
+            filter.accept(token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            filter.accept(token);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,102 @@
+package biz.itehnika.homeaccrest.utils;
+
+import biz.itehnika.homeaccrest.models.Payment;
+import biz.itehnika.homeaccrest.models.PaymentCategory;
+import biz.itehnika.homeaccrest.models.enums.CurrencyName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentRollupDeltasTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 3, 4, 10, 0);
+    private static final LocalDateTime TUESDAY = LocalDateTime.of(2024, 3, 5, 18, 30);
+
+    @Test
+    void updateRemovesOldAndAddsNewValuesOfTheSameRow() {
+        Payment payment = payment(MONDAY, 7L, 100.0);
+        PaymentRollupDeltas deltas = new PaymentRollupDeltas();
+        deltas.remove(payment);
+        payment.setAmount(130.0);
+        payment.setDateTime(MONDAY.plusHours(5));       // same day, same rollup row
+        deltas.add(payment);
+
+        Map<PaymentRollupDeltas.Key, PaymentRollupDeltas.Delta> collected = collect(deltas);
+        assertEquals(Map.of(key(MONDAY, 7L), new PaymentRollupDeltas.Delta(30.0, 0)), collected);
+        assertFalse(deltas.hasRemovals());
+    }
+
+    @Test
+    void onlyANegativeNetCountRequestsDeletingEmptyRows() {
+        Payment payment = payment(MONDAY, 7L, 100.0);
+        PaymentRollupDeltas unchanged = new PaymentRollupDeltas();
+        unchanged.remove(payment);
+        unchanged.add(payment);
+        assertEquals(Map.of(key(MONDAY, 7L), new PaymentRollupDeltas.Delta(0.0, 0)), collect(unchanged));
+        assertFalse(unchanged.hasRemovals());
+
+        PaymentRollupDeltas deleted = new PaymentRollupDeltas();
+        deleted.add(MONDAY, CurrencyName.UAH, 7L, false, true, -100.0, -1);
+        deleted.add(MONDAY, CurrencyName.UAH, 7L, false, true, -20.0, -1);
+        assertEquals(Map.of(key(MONDAY, 7L), new PaymentRollupDeltas.Delta(-120.0, -2)), collect(deleted));
+        assertTrue(deleted.hasRemovals());
+    }
+
+    @Test
+    void movingBetweenCategoryAndDayTouchesBothRows() {
+        Payment payment = payment(MONDAY, 7L, 100.0);
+        PaymentRollupDeltas deltas = new PaymentRollupDeltas();
+        deltas.remove(payment);
+        payment.setDateTime(TUESDAY);
+        payment.setPaymentCategory(category(8L));
+        deltas.add(payment);
+
+        Map<PaymentRollupDeltas.Key, PaymentRollupDeltas.Delta> collected = collect(deltas);
+        assertEquals(2, collected.size());
+        assertEquals(new PaymentRollupDeltas.Delta(-100.0, -1), collected.get(key(MONDAY, 7L)));
+        assertEquals(new PaymentRollupDeltas.Delta(100.0, 1), collected.get(key(TUESDAY, 8L)));
+        assertTrue(deltas.hasRemovals());
+    }
+
+    @Test
+    void paymentWithoutCategoryGoesToCategoryZero() {
+        Payment payment = payment(MONDAY, null, 50.0);
+        payment.setPaymentCategory(null);
+        PaymentRollupDeltas deltas = new PaymentRollupDeltas();
+        deltas.add(payment);
+        assertEquals(Map.of(key(MONDAY, 0L), new PaymentRollupDeltas.Delta(50.0, 1)), collect(deltas));
+    }
+
+    private static Payment payment(LocalDateTime dateTime, Long paymentCategoryId, double amount) {
+        Payment payment = new Payment();
+        payment.setDateTime(dateTime);
+        payment.setDirection(false);
+        payment.setStatus(true);
+        payment.setAmount(amount);
+        payment.setCurrencyName(CurrencyName.UAH);
+        payment.setPaymentCategory(category(paymentCategoryId));
+        return payment;
+    }
+
+    private static PaymentCategory category(Long id) {
+        PaymentCategory paymentCategory = new PaymentCategory();
+        paymentCategory.setId(id);
+        return paymentCategory;
+    }
+
+    private static PaymentRollupDeltas.Key key(LocalDateTime dateTime, Long paymentCategoryId) {
+        return new PaymentRollupDeltas.Key(dateTime.toLocalDate(), CurrencyName.UAH, paymentCategoryId, false, true);
+    }
+
+    private static Map<PaymentRollupDeltas.Key, PaymentRollupDeltas.Delta> collect(PaymentRollupDeltas deltas) {
+        Map<PaymentRollupDeltas.Key, PaymentRollupDeltas.Delta> collected = new HashMap<>();
+        deltas.forEach(collected::put);
+        return collected;
+    }
+}